@@ -2,8 +2,6 @@ package com.wallet;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
 public class WalletApiServiceApplication {
@@ -11,9 +9,4 @@ public class WalletApiServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(WalletApiServiceApplication.class, args);
     }
-
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
 }
\ No newline at end of file
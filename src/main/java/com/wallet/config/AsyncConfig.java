@@ -0,0 +1,28 @@
+package com.wallet.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    // Runs the Paystack call and the pending-transaction insert of deposit initialization,
+    // so those waits hold one of these threads instead of a servlet thread. Bounded, so a
+    // deposit burst is rejected here rather than crowding out other endpoints.
+    @Bean
+    public ThreadPoolTaskExecutor depositExecutor(
+            @Value("${app.wallet.deposit.executor.core-size:16}") int coreSize,
+            @Value("${app.wallet.deposit.executor.max-size:64}") int maxSize,
+            @Value("${app.wallet.deposit.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("deposit-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+}
@@ -0,0 +1,149 @@
+package com.wallet.config;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+// Postgres LISTEN/NOTIFY between instances. One dedicated connection outside the pool waits
+// for notifications, so no pooled connection is ever parked. Postgres delivers a notification
+// only once the sending transaction commits, and drops whatever is sent while this instance
+// is not listening; subscribers therefore get a resync callback every time the connection
+// is (re)established and must treat anything they derived from notifications as lost.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DatabaseNotifications {
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_]+");
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long MIN_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final JdbcConnectionDetails connectionDetails;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread listener;
+
+    private record Subscriber(Consumer<String> onNotification, Runnable onResync) {
+    }
+
+    // Subscribe before the application is ready; channels are listened to when the connection opens
+    public void subscribe(String channel, Consumer<String> onNotification, Runnable onResync) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>())
+                .add(new Subscriber(onNotification, onResync));
+    }
+
+    // Runs in the caller's transaction if there is one: delivered to every instance, this one
+    // included, when it commits and never if it rolls back. Every notifying transaction
+    // queues on one global lock at commit, so keep this off hot write paths.
+    public void send(String channel, String payload) {
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, channel, payload);
+    }
+
+    // False while disconnected; notifications sent meanwhile never arrive
+    public boolean isListening() {
+        return listening;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::run, "db-notifications");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.join(TimeUnit.SECONDS.toMillis(2));
+        }
+    }
+
+    private void run() {
+        long backoff = MIN_BACKOFF_MS;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    connectionDetails.getJdbcUrl(),
+                    connectionDetails.getUsername(),
+                    connectionDetails.getPassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : subscribers.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                listening = true;
+                backoff = MIN_BACKOFF_MS;
+                log.info("Listening for database notifications on {}", subscribers.keySet());
+                subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.onResync().run()));
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Database notification connection lost, retrying in {}ms: {}", backoff, e.getMessage());
+                }
+            } finally {
+                listening = false;
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void dispatch(PGNotification notification) {
+        for (Subscriber subscriber : subscribers.getOrDefault(notification.getName(), List.of())) {
+            try {
+                subscriber.onNotification().accept(notification.getParameter());
+            } catch (RuntimeException e) {
+                log.error("Handling notification on {} failed: {}", notification.getName(), e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.wallet.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class PaystackClientConfig {
+
+    // The JDK HttpClient pools keep-alive connections per host, so one instance
+    // shared for the app's lifetime avoids a TCP/TLS handshake per Paystack call
+    @Bean
+    public RestTemplate paystackRestTemplate(
+            ObjectMapper objectMapper,
+            @Value("${app.paystack.base-url}") String baseUrl,
+            @Value("${app.paystack.client.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${app.paystack.client.read-timeout:5s}") Duration readTimeout) {
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter(objectMapper)));
+        restTemplate.setUriTemplateHandler(new DefaultUriBuilderFactory(baseUrl));
+        return restTemplate;
+    }
+}
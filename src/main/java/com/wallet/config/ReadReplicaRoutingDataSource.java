@@ -0,0 +1,83 @@
+package com.wallet.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+// Sends connections of read-only transactions to the replica while it is healthy and the
+// current request is not pinned to the primary; everything else uses the primary. Sits
+// behind a LazyConnectionDataSourceProxy, so the choice is made at the first statement,
+// after the transaction's read-only flag has been set.
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaHealth replicaHealth;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter fallbacks;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                        ReplicaHealth replicaHealth, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaHealth = replicaHealth;
+        this.primaryRoutes = meterRegistry.counter("datasource.route", "target", "primary");
+        this.replicaRoutes = meterRegistry.counter("datasource.route", "target", "replica");
+        this.fallbacks = meterRegistry.counter("datasource.route", "target", "fallback");
+        setTargetDataSources(Map.<Object, Object>of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    // Read-your-writes: read-only work on this thread goes to the primary until unpin()
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && PINNED.get() == null
+                && replicaHealth.isUsable()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    // A replica that cannot hand out a connection is taken out of rotation and the
+    // read served by the primary, rather than failing the request
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        if (target != replica) {
+            primaryRoutes.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaRoutes.increment();
+            return connection;
+        } catch (SQLException e) {
+            replicaHealth.markDown(e);
+            fallbacks.increment();
+            return primary.getConnection();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.wallet.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Opt-in primary/replica split. The primary pool keeps the spring.datasource settings; the
+// DataSource everything else sees routes read-only transactions to the replica pool.
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    // Defining the DataSource here switches off Boot's pool configuration, and with it the
+    // connection details it would register from spring.datasource; a service connection
+    // (e.g. Testcontainers) still takes precedence
+    @Bean
+    @ConditionalOnMissingBean(JdbcConnectionDetails.class)
+    public JdbcConnectionDetails jdbcConnectionDetails(DataSourceProperties properties) {
+        return new JdbcConnectionDetails() {
+            @Override
+            public String getUsername() {
+                return properties.determineUsername();
+            }
+
+            @Override
+            public String getPassword() {
+                return properties.determinePassword();
+            }
+
+            @Override
+            public String getJdbcUrl() {
+                return properties.determineUrl();
+            }
+
+            @Override
+            public String getDriverClassName() {
+                return properties.determineDriverClassName();
+            }
+        };
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(JdbcConnectionDetails connectionDetails) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(connectionDetails.getDriverClassName())
+                .url(connectionDetails.getJdbcUrl())
+                .username(connectionDetails.getUsername())
+                .password(connectionDetails.getPassword())
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${app.datasource.replica.url}") String url,
+            @Value("${app.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${app.datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaHealth replicaHealth(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${app.datasource.replica.max-lag:5s}") Duration maxLag,
+            MeterRegistry meterRegistry) {
+        return new ReplicaHealth(replicaDataSource, maxLag, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReplicaHealth replicaHealth,
+            MeterRegistry meterRegistry) {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(
+                primaryDataSource, replicaDataSource, replicaHealth, meterRegistry);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,75 @@
+package com.wallet.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Replication lag of the read replica, checked on a schedule. The replica is only used while
+// the last check succeeded with a lag under max-lag; a failed connection attempt in between
+// takes it out of rotation until the next good check.
+@Slf4j
+public class ReplicaHealth {
+
+    // Zero when the replica has replayed everything it received, so an idle primary does not
+    // look like lag; zero as well for a server that is not a standby at all
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+                    "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+                    "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration maxLag;
+
+    private volatile boolean usable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaHealth(DataSource replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(replica);
+        this.jdbcTemplate.setQueryTimeout(2);
+        this.maxLag = maxLag;
+
+        Gauge.builder("datasource.replica.lag.seconds", () -> lagSeconds)
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", () -> usable ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.health-check-interval-ms:1000}")
+    public void check() {
+        Double lag;
+        try {
+            lag = jdbcTemplate.queryForObject(LAG_SQL, Double.class);
+        } catch (DataAccessException e) {
+            markDown(e);
+            return;
+        }
+
+        lagSeconds = lag == null ? 0 : lag;
+        boolean healthy = lagSeconds * 1000 <= maxLag.toMillis();
+        if (healthy != usable) {
+            if (healthy) {
+                log.info("Read replica back in rotation, lag {}s", lagSeconds);
+            } else {
+                log.warn("Read replica lag {}s exceeds {}, reads go to the primary", lagSeconds, maxLag);
+            }
+        }
+        usable = healthy;
+    }
+
+    public void markDown(Exception cause) {
+        if (usable) {
+            log.warn("Read replica unavailable, reads go to the primary: {}", cause.getMessage());
+        }
+        usable = false;
+    }
+}
@@ -0,0 +1,18 @@
+package com.wallet.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Most JDBC statements one call of the method may execute on the calling thread, its commit
+// included. Every call is recorded under db.statements.method; calls over budget are logged
+// and counted, and fail outright with app.db.statement-budget.fail-on-exceed. Attempts retried
+// after a lock conflict do not count against the budget and go to db.statements.retried;
+// calls handed to another thread are only counted under db.statements.delegated.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    int value();
+}
@@ -0,0 +1,103 @@
+package com.wallet.config;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Set;
+
+// Counts JDBC statements executed on each thread, whether they come from Hibernate or a
+// JdbcTemplate. A batch counts once, as it is one round trip. Callers take current() before
+// and after a unit of work; the difference is what that work executed. Work that is rolled
+// back and run again, and work handed to another thread, is marked so callers can tell it apart.
+public final class StatementCounter {
+
+    private static final int EXECUTED = 0;
+    private static final int RETRIED = 1;
+    private static final int DELEGATED = 2;
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[3]);
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private StatementCounter() {
+    }
+
+    // Every statement executed on this thread, retried attempts included
+    public static long current() {
+        return COUNT.get()[EXECUTED];
+    }
+
+    // Statements of attempts that were rolled back and run again
+    public static long retried() {
+        return COUNT.get()[RETRIED];
+    }
+
+    public static void markRetried(long statements) {
+        COUNT.get()[RETRIED] += statements;
+    }
+
+    // How often this thread handed work to another thread, whose statements it does not see
+    public static long delegations() {
+        return COUNT.get()[DELEGATED];
+    }
+
+    public static void markDelegated() {
+        COUNT.get()[DELEGATED]++;
+    }
+
+    public static DataSource wrap(DataSource dataSource) {
+        return proxy(dataSource, ClassUtils.getAllInterfaces(dataSource), (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection connection && method.getName().equals("getConnection")
+                    ? proxy(connection, new Class<?>[]{Connection.class}, StatementCounter::onConnection)
+                    : result;
+        });
+    }
+
+    private static Object onConnection(Object target, Method method, Object[] args) throws Throwable {
+        Object result = invoke(target, method, args);
+        // createStatement, prepareStatement and prepareCall; the proxy keeps the declared type
+        if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+            return proxy(result, new Class<?>[]{method.getReturnType()}, StatementCounter::onStatement);
+        }
+        return result;
+    }
+
+    private static Object onStatement(Object target, Method method, Object[] args) throws Throwable {
+        if (EXECUTE_METHODS.contains(method.getName())) {
+            COUNT.get()[EXECUTED]++;
+        }
+        return invoke(target, method, args);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Object target, Class<?>[] interfaces, Handler handler) {
+        // Identity semantics, so Spring's holder lookups still match a connection to itself
+        InvocationHandler invocationHandler = (proxy, method, args) -> switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> handler.handle(target, method, args);
+        };
+        return (T) Proxy.newProxyInstance(StatementCounter.class.getClassLoader(), interfaces, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
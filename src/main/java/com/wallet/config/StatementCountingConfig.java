@@ -0,0 +1,96 @@
+package com.wallet.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+
+@Configuration
+@Slf4j
+public class StatementCountingConfig {
+
+    // Only the DataSource the application uses: the pools behind a routing DataSource are
+    // reached through it, and wrapping them too would count every statement twice
+    @Bean
+    public static BeanPostProcessor statementCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return StatementCounter.wrap(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Just inside the @Timed advisor and outside the transaction interceptor, so a transaction's
+    // commit is counted as well; a distinct order keeps the nesting the same on every startup
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor statementBudgetAdvisor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                 Environment environment) {
+        boolean failOnExceed = environment.getProperty(
+                "app.db.statement-budget.fail-on-exceed", Boolean.class, false);
+
+        MethodInterceptor interceptor = invocation -> {
+            Method method = invocation.getMethod();
+            int budget = method.getAnnotation(StatementBudget.class).value();
+            String name = AopUtils.getTargetClass(invocation.getThis()).getSimpleName() + "." + method.getName();
+
+            long before = StatementCounter.current();
+            long retriedBefore = StatementCounter.retried();
+            long delegationsBefore = StatementCounter.delegations();
+            Object result = invocation.proceed();
+            long retried = StatementCounter.retried() - retriedBefore;
+            long used = StatementCounter.current() - before - retried;
+
+            MeterRegistry registry = meterRegistry.getObject();
+            if (StatementCounter.delegations() != delegationsBefore) {
+                // The work ran on the ledger or group-commit thread; this thread's count is not its cost
+                registry.counter("db.statements.delegated", "method", name).increment();
+                return result;
+            }
+            DistributionSummary.builder("db.statements.method")
+                    .tag("method", name)
+                    .register(registry)
+                    .record(used);
+            if (retried > 0) {
+                // Attempts rolled back by a lock conflict are reported here, outside the budget
+                DistributionSummary.builder("db.statements.retried")
+                        .tag("method", name)
+                        .register(registry)
+                        .record(retried);
+            }
+            if (used > budget) {
+                registry.counter("db.statements.over_budget", "method", name).increment();
+                log.warn("{} executed {} statements, budget is {}", name, used, budget);
+                if (failOnExceed) {
+                    throw new IllegalStateException(
+                            name + " executed " + used + " statements, budget is " + budget);
+                }
+            }
+            return result;
+        };
+
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(StatementBudget.class), interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+}
@@ -0,0 +1,48 @@
+package com.wallet.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Statements executed on the request thread, per endpoint. Work handed to other threads
+// (async deposit initialization, the group-commit batcher, the ledger) is not included.
+// First in the servlet chain, so authentication lookups are counted too.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class StatementCountingFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        long before = StatementCounter.current();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // The route template keeps the tag bounded; unmatched requests share one value
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("db.statements.request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .register(meterRegistry)
+                    .record(StatementCounter.current() - before);
+        }
+    }
+}
@@ -1,12 +1,8 @@
 package com.wallet.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.wallet.entity.Transaction;
-import com.wallet.enums.TransactionStatus;
-import com.wallet.exception.ResourceNotFoundException;
 import com.wallet.service.PaystackService;
-import com.wallet.service.TransactionService;
+import com.wallet.service.WebhookInbox;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,8 +12,6 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.math.BigDecimal;
-
 @RestController
 @RequestMapping("/wallet/paystack")
 @RequiredArgsConstructor
@@ -25,76 +19,32 @@ import java.math.BigDecimal;
 public class PaystackWebhookController {
 
     private final PaystackService paystackService;
-    private final TransactionService transactionService;
-    private final ObjectMapper objectMapper;
+    private final WebhookInbox webhookInbox;
+    private final MeterRegistry meterRegistry;
 
     @PostMapping("/webhook")
     public ResponseEntity<String> handleWebhook(
             HttpServletRequest request,
-            @RequestBody String payload) {
+            @RequestBody byte[] payload) {
+
+        // 1. Verify Paystack signature over the raw body bytes
+        String signature = request.getHeader("x-paystack-signature");
+        if (!paystackService.verifyWebhookSignature(payload, signature)) {
+            log.warn("Invalid Paystack signature");
+            meterRegistry.counter("webhook.events", "outcome", "invalid_signature").increment();
+            return ResponseEntity.status(401).body("Invalid signature");
+        }
 
+        // 2. Persist to the inbox; the wallet is credited by the inbox workers
         try {
-            // 1. Verify Paystack signature
-            String signature = request.getHeader("x-paystack-signature");
-            if (!paystackService.verifyWebhookSignature(payload, signature)) {
-                log.warn("Invalid Paystack signature");
-                return ResponseEntity.status(401).body("Invalid signature");
-            }
-
-            // 2. Immediately return 200 OK (As Paystack recommends)
-            //    But still process in background
-            ResponseEntity<String> response =
-                    ResponseEntity.ok("{\"status\":true}");
-
-            // 3. Process asynchronously (but we'll process inline here)
-            processWebhook(payload);
-
-            return response;
-
+            webhookInbox.enqueue(payload);
         } catch (Exception e) {
-            log.error("Webhook processing failed: {}", e.getMessage(), e);
-            return ResponseEntity.ok("{\"status\":true}"); // Still return 200
+            // Not stored, so let Paystack deliver it again
+            log.error("Failed to store Paystack webhook: {}", e.getMessage(), e);
+            return ResponseEntity.status(503).body("{\"status\":false}");
         }
-    }
-
-    private void processWebhook(String payload) {
-        try {
-            JsonNode root = objectMapper.readTree(payload);
-            String event = root.get("event").asText();
 
-            if (!"charge.success".equals(event)) {
-                log.info("Ignoring non-success event: {}", event);
-                return;
-            }
-
-            JsonNode data = root.get("data");
-            String reference = data.get("reference").asText();
-
-            BigDecimal amount = BigDecimal.valueOf(data.get("amount").asLong())
-                    .divide(BigDecimal.valueOf(100));
-
-            // 4. Retrieve your internal transaction using your "reference"
-            Transaction tx;
-            try {
-                tx = transactionService.getTransactionByReference(reference);
-            } catch (ResourceNotFoundException e) {
-                log.error("Unknown reference received from Paystack: {}", reference);
-                return;
-            }
-
-            // 5. Idempotency check
-            if (tx.getStatus() == TransactionStatus.SUCCESS) {
-                log.info("Transaction already processed: {}", reference);
-                return;
-            }
-
-            // 6. Mark transaction successful and credit wallet via service
-            transactionService.markDepositSuccessful(tx, amount);
-
-            log.info("Paystack webhook processed successfully: {}, Amount={}", reference, amount);
-
-        } catch (Exception ex) {
-            log.error("Webhook processing error: {}", ex.getMessage(), ex);
-        }
+        // 3. Acknowledge as soon as the payload is durable (as Paystack recommends)
+        return ResponseEntity.ok("{\"status\":true}");
     }
 }
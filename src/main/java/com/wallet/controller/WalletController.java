@@ -7,22 +7,34 @@ import com.wallet.entity.ApiKey;
 import com.wallet.entity.Transaction;
 import com.wallet.entity.User;
 import com.wallet.enums.ApiKeyPermission;
+import com.wallet.enums.ExportFormat;
 import com.wallet.enums.TransactionStatus;
+import com.wallet.exception.BadRequestException;
 import com.wallet.security.ApiKeyAuthenticationFilter;
+import com.wallet.service.DepositService;
 import com.wallet.service.PaystackService;
+import com.wallet.service.TransactionExportService;
 import com.wallet.service.TransactionService;
 import com.wallet.service.UserService;
 import com.wallet.service.WalletService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/wallet")
@@ -34,34 +46,35 @@ public class WalletController {
     private final PaystackService paystackService;
     private final TransactionService transactionService;
     private final UserService userService;
+    private final TransactionExportService transactionExportService;
+    private final DepositService depositService;
+
+    @Value("${app.wallet.deposit.request-timeout:15s}")
+    private Duration depositRequestTimeout;
 
     @PostMapping("/deposit")
     @PreAuthorize("@methodSecurityConfig.hasPermission('DEPOSIT')")
-    public ResponseEntity<ApiResponse<DepositResponse>> deposit(
+    public DeferredResult<ResponseEntity<ApiResponse<DepositResponse>>> deposit(
             @AuthenticationPrincipal User user,
             @Valid @RequestBody DepositRequest request) {
 
-        String reference = paystackService.generateReference();
-
-        DepositResponse depositResponse = paystackService.initializeTransaction(
-                user.getEmail(),
-                request.getAmount(),
-                reference
-        );
-
-        // Create pending transaction
-        transactionService.createPendingDeposit(
-                user,
-                request.getAmount(),
-                depositResponse.getReference()
-        );
-
-        log.info("Deposit initialized: User={}, Amount={}, Reference={}",
-                user.getId(), request.getAmount(), reference);
-
-        return ResponseEntity.ok(ApiResponse.success(
-                "Deposit initialized", depositResponse
-        ));
+        // Completes off the servlet thread once Paystack and the pending transaction are done.
+        // The timeout applies to this endpoint only; the streaming export must not inherit it.
+        DeferredResult<ResponseEntity<ApiResponse<DepositResponse>>> result =
+                new DeferredResult<>(depositRequestTimeout.toMillis());
+        depositService.initializeDeposit(user, request.getAmount())
+                .whenComplete((depositResponse, error) -> {
+                    if (error == null) {
+                        result.setResult(ResponseEntity.ok(ApiResponse.success(
+                                "Deposit initialized", depositResponse
+                        )));
+                    } else {
+                        result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause()
+                                : error);
+                    }
+                });
+        return result;
     }
 
     @GetMapping("/balance")
@@ -96,21 +109,67 @@ public class WalletController {
         ));
     }
 
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("@methodSecurityConfig.hasPermission('TRANSFER')")
+    public ResponseEntity<ApiResponse<BatchTransferResponse>> batchTransfer(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody BatchTransferRequest request) {
+
+        String reference = paystackService.generateReference();
+
+        BatchTransferResponse response = walletService.batchTransfer(
+                user,
+                request.getTransfers(),
+                reference
+        );
+
+        return ResponseEntity.ok(ApiResponse.success(
+                "Batch transfer completed successfully", response
+        ));
+    }
+
     @GetMapping("/transactions")
     @PreAuthorize("@methodSecurityConfig.hasPermission('READ')")
-    public ResponseEntity<ApiResponse<List<TransactionDto>>> getTransactions(
-            @AuthenticationPrincipal User user) {
+    public ResponseEntity<ApiResponse<TransactionPageResponse>> getTransactions(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
 
-        List<Transaction> transactions = transactionService.getUserTransactions(user);
-        List<TransactionDto> transactionDtos = transactions.stream()
-                .map(transactionService::toDto)
-                .toList();
+        TransactionPageResponse page = transactionService.getUserTransactions(user, cursor, limit);
 
         return ResponseEntity.ok(ApiResponse.success(
-                "Transactions retrieved successfully", transactionDtos
+                "Transactions retrieved successfully", page
         ));
     }
 
+    @GetMapping("/transactions/export")
+    @PreAuthorize("@methodSecurityConfig.hasPermission('READ')")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @AuthenticationPrincipal User user,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromCode(format);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        // Rows are written as they are read; nothing is collected in memory
+        StreamingResponseBody body = out ->
+                transactionExportService.export(user, exportFormat, from, to, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions." + exportFormat.getCode() + "\"")
+                .body(body);
+    }
+
     @GetMapping("/deposit/{reference}/status")
     public ResponseEntity<ApiResponse<TransactionStatus>> getDepositStatus(
             @AuthenticationPrincipal User user,
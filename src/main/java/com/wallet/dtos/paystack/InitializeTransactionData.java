@@ -0,0 +1,22 @@
+package com.wallet.dtos.paystack;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class InitializeTransactionData {
+
+    @JsonProperty("authorization_url")
+    private String authorizationUrl;
+
+    @JsonProperty("access_code")
+    private String accessCode;
+
+    private String reference;
+}
@@ -0,0 +1,17 @@
+package com.wallet.dtos.paystack;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InitializeTransactionRequest {
+    private String email;
+    // In kobo
+    private String amount;
+    private String reference;
+}
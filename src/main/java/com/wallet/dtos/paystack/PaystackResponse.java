@@ -0,0 +1,17 @@
+package com.wallet.dtos.paystack;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Envelope Paystack wraps every API response in
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PaystackResponse<T> {
+    private boolean status;
+    private String message;
+    private T data;
+}
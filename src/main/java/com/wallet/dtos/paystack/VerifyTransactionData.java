@@ -0,0 +1,17 @@
+package com.wallet.dtos.paystack;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VerifyTransactionData {
+    private String status;
+    private String reference;
+    // In kobo
+    private long amount;
+}
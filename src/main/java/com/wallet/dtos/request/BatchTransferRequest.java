@@ -0,0 +1,15 @@
+package com.wallet.dtos.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransferRequest {
+
+    @NotEmpty(message = "Transfers are required")
+    @Valid
+    private List<TransferRequest> transfers;
+}
@@ -0,0 +1,19 @@
+package com.wallet.dtos.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponse {
+    private String reference;
+    private BigDecimal totalAmount;
+    private List<BatchTransferResult> results;
+}
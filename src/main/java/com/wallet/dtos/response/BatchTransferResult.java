@@ -0,0 +1,20 @@
+package com.wallet.dtos.response;
+
+import com.wallet.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResult {
+    private String walletNumber;
+    private BigDecimal amount;
+    private String reference;
+    private TransactionStatus status;
+}
@@ -0,0 +1,19 @@
+package com.wallet.dtos.response;
+
+import com.wallet.dtos.TransactionDto;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPageResponse {
+    private List<TransactionDto> transactions;
+    // Opaque cursor for the following page; null on the last page
+    private String next;
+}
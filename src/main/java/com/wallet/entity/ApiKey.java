@@ -21,7 +21,7 @@ import java.util.Set;
 public class ApiKey {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     private String id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,31 @@
+package com.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One completed balance audit, written by whichever instance held the audit lock; every
+// instance reports the latest one. Written and read through BalanceAuditJdbcRepository.
+@Entity
+@Table(name = "balance_audits", indexes = {
+        @Index(name = "idx_balance_audits_audited_at", columnList = "audited_at DESC")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceAuditRun {
+
+    @Id
+    @TimeOrderedId
+    private String id;
+
+    // Wallet balances not accounted for by deposits; zero when the audit passed
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal unexplained;
+
+    @Column(name = "audited_at", nullable = false)
+    private LocalDateTime auditedAt;
+}
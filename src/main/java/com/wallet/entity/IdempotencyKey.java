@@ -0,0 +1,58 @@
+package com.wallet.entity;
+
+import com.wallet.enums.IdempotencyStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Idempotency-Key headers seen on money-moving requests and the response each one produced;
+// written and read through IdempotencyJdbcRepository, the entity only describes the table
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyKey {
+
+    // The client's key prefixed with the caller's user id, so keys never collide across users
+    @Id
+    @Column(name = "idempotency_key", length = 300)
+    private String idempotencyKey;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IdempotencyStatus status;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "response_body")
+    private byte[] responseBody;
+
+    // An IN_FLIGHT row whose owner died may be taken over after this
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    // Set by each claim; only the current owner may complete or release the key
+    @Column(name = "owner_token", length = 36)
+    private String ownerToken;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
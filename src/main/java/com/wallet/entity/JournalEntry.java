@@ -0,0 +1,50 @@
+package com.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Check;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One transfer as a double-entry journal entry: a debit posting on the sender's wallet and a
+// credit posting of the same amount on the receiver's, in a single immutable row. Because
+// both postings share one amount column, every entry balances by construction.
+@Entity
+@Table(name = "journal_entries", indexes = {
+        @Index(name = "idx_journal_reference", columnList = "reference", unique = true),
+        @Index(name = "idx_journal_debit_user_created_at", columnList = "debit_user_id, created_at DESC, id DESC"),
+        @Index(name = "idx_journal_credit_user_created_at", columnList = "credit_user_id, created_at DESC, id DESC")
+})
+@Check(constraints = "amount > 0 AND debit_user_id <> credit_user_id")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JournalEntry {
+
+    @Id
+    @TimeOrderedId
+    private String id;
+
+    @Column(nullable = false, unique = true)
+    private String reference;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "debit_user_id", nullable = false)
+    private String debitUserId;
+
+    @Column(name = "debit_wallet_number")
+    private String debitWalletNumber;
+
+    @Column(name = "credit_user_id", nullable = false)
+    private String creditUserId;
+
+    @Column(name = "credit_wallet_number")
+    private String creditWalletNumber;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
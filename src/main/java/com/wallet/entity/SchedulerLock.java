@@ -0,0 +1,31 @@
+package com.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One row per scheduled job that must run on a single instance at a time; written and read
+// through SchedulerLockJdbcRepository, the entity only describes the table
+@Entity
+@Table(name = "scheduler_locks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SchedulerLock {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Free for any instance from this point on
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+}
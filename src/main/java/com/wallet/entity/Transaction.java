@@ -23,7 +23,7 @@ import java.time.LocalDateTime;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     private String id;
 
     @Column(nullable = false, unique = true)
@@ -24,7 +24,7 @@ import java.util.Collections;
 public class User implements UserDetails {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     private String id;
 
     @Column(name = "google_id", nullable = false)
@@ -2,6 +2,7 @@ package com.wallet.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -17,7 +18,7 @@ import java.time.LocalDateTime;
 public class Wallet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     private String id;
 
     @OneToOne(fetch = FetchType.LAZY)
@@ -46,4 +47,14 @@ public class Wallet {
 
     @Column(unique = true)
     private String walletNumber;
+
+    // Number of wallet_balance_slots rows credits are spread over; 0 for an ordinary wallet
+    @ColumnDefault("0")
+    @Column(name = "balance_slots", nullable = false)
+    private int balanceSlots;
+
+    // Bumped by every statement that changes balance, so cached balances can tell which is newer
+    @ColumnDefault("0")
+    @Column(name = "balance_version", nullable = false)
+    private long balanceVersion;
 }
\ No newline at end of file
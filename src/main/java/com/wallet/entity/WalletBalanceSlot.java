@@ -0,0 +1,36 @@
+package com.wallet.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Part of a sharded wallet's balance; written through WalletSlotJdbcRepository,
+// the entity only describes the table
+@Entity
+@Table(name = "wallet_balance_slots", indexes = {
+        @Index(name = "idx_wallet_balance_slots_user_slot", columnList = "user_id, slot", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WalletBalanceSlot {
+
+    @Id
+    @TimeOrderedId
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,50 @@
+package com.wallet.entity;
+
+import com.wallet.enums.WebhookStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Verified Paystack webhooks waiting to be applied; written and drained through
+// WebhookInboxJdbcRepository, the entity only describes the table
+@Entity
+@Table(name = "webhook_inbox", indexes = {
+        @Index(name = "idx_webhook_inbox_payload_hash", columnList = "payload_hash", unique = true),
+        @Index(name = "idx_webhook_inbox_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookInboxEntry {
+
+    @Id
+    private String id;
+
+    // Paystack re-sends identical bodies, so the hash de-duplicates retries on insert
+    @Column(name = "payload_hash", nullable = false, length = 64)
+    private String payloadHash;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WebhookStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,26 @@
+package com.wallet.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum ExportFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    CSV("csv", "text/csv");
+
+    private final String code;
+    private final String contentType;
+
+    ExportFormat(String code, String contentType) {
+        this.code = code;
+        this.contentType = contentType;
+    }
+
+    public static ExportFormat fromCode(String code) {
+        for (ExportFormat format : values()) {
+            if (format.getCode().equalsIgnoreCase(code)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Invalid export format: " + code);
+    }
+}
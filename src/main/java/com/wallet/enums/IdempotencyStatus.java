@@ -0,0 +1,6 @@
+package com.wallet.enums;
+
+public enum IdempotencyStatus {
+    IN_FLIGHT,
+    COMPLETED
+}
@@ -0,0 +1,7 @@
+package com.wallet.enums;
+
+public enum WebhookStatus {
+    PENDING,
+    PROCESSED,
+    DEAD
+}
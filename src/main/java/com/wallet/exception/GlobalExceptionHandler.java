@@ -1,6 +1,8 @@
 package com.wallet.exception;
 
 import com.wallet.dtos.response.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,9 +16,12 @@ import java.util.HashMap;
 import java.util.Map;
 
 @ControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ApiResponse<String>> handleResourceNotFoundException(
             ResourceNotFoundException ex) {
@@ -37,10 +42,19 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ApiResponse<String>> handleInsufficientBalanceException(
             InsufficientBalanceException ex) {
         log.error("Insufficient balance: {}", ex.getMessage());
+        meterRegistry.counter("wallet.insufficient_balance").increment();
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(PaystackUnavailableException.class)
+    public ResponseEntity<ApiResponse<String>> handlePaystackUnavailableException(
+            PaystackUnavailableException ex) {
+        log.error("Paystack unavailable: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Map<String, String>>> handleValidationExceptions(
             MethodArgumentNotValidException ex) {
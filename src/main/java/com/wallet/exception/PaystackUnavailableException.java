@@ -0,0 +1,15 @@
+package com.wallet.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PaystackUnavailableException extends RuntimeException {
+    public PaystackUnavailableException(String message) {
+        super(message);
+    }
+
+    public PaystackUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
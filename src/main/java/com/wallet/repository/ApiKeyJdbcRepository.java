@@ -0,0 +1,30 @@
+package com.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class ApiKeyJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // One JDBC batch for all keys; never moves a timestamp backwards
+    public void updateLastUsedAt(Map<String, LocalDateTime> lastUsedById) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE api_keys SET last_used_at = ? " +
+                        "WHERE id = ? AND (last_used_at IS NULL OR last_used_at < ?)",
+                lastUsedById.entrySet().stream()
+                        .map(entry -> {
+                            Timestamp lastUsedAt = Timestamp.valueOf(entry.getValue());
+                            return new Object[]{lastUsedAt, entry.getKey(), lastUsedAt};
+                        })
+                        .toList()
+        );
+    }
+}
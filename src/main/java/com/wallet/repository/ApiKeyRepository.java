@@ -3,6 +3,8 @@ package com.wallet.repository;
 import com.wallet.entity.ApiKey;
 import com.wallet.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +16,8 @@ public interface ApiKeyRepository extends JpaRepository<ApiKey, String> {
     Optional<ApiKey> findByKeyAndIsActive(String key, boolean isActive);
     List<ApiKey> findByUser(User user);
     long countByUserAndIsActive(User user, boolean isActive);
+
+    // Fetches the owner with the key so authentication needs no lazy load afterwards
+    @Query("SELECT k FROM ApiKey k JOIN FETCH k.user WHERE k.key = :key AND k.isActive = true")
+    Optional<ApiKey> findActiveByKeyWithUser(@Param("key") String key);
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.wallet.repository;
+
+import com.wallet.entity.BalanceAuditRun;
+import com.wallet.entity.TimeOrderedIdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class BalanceAuditJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void record(BigDecimal unexplained, LocalDateTime auditedAt) {
+        jdbcTemplate.update(
+                "INSERT INTO balance_audits (id, unexplained, audited_at) VALUES (?, ?, ?)",
+                TimeOrderedIdGenerator.nextId(), unexplained, Timestamp.valueOf(auditedAt)
+        );
+    }
+
+    public Optional<BalanceAuditRun> findLatest() {
+        return jdbcTemplate.query(
+                "SELECT id, unexplained, audited_at FROM balance_audits ORDER BY audited_at DESC LIMIT 1",
+                (rs, rowNum) -> new BalanceAuditRun(
+                        rs.getString("id"),
+                        rs.getBigDecimal("unexplained"),
+                        rs.getTimestamp("audited_at").toLocalDateTime()
+                )
+        ).stream().findFirst();
+    }
+}
@@ -0,0 +1,85 @@
+package com.wallet.repository;
+
+import com.wallet.enums.IdempotencyStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record StoredKey(String requestHash, IdempotencyStatus status, int responseStatus,
+                            String contentType, byte[] responseBody) {
+    }
+
+    // True when the caller now owns the key: it was unused, expired, or held by a request
+    // with the same hash whose lock ran out (its instance died before finishing). The owner
+    // token marks this claim, so a previous owner that turns up late cannot touch the key.
+    public boolean claim(String key, String ownerToken, String userId, String requestHash, LocalDateTime now,
+                         LocalDateTime lockedUntil, LocalDateTime expiresAt) {
+        Timestamp ts = Timestamp.valueOf(now);
+        return jdbcTemplate.update(
+                "INSERT INTO idempotency_keys (idempotency_key, owner_token, user_id, request_hash, status, " +
+                        "locked_until, expires_at, created_at) VALUES (?, ?, ?, ?, 'IN_FLIGHT', ?, ?, ?) " +
+                        "ON CONFLICT (idempotency_key) DO UPDATE SET owner_token = EXCLUDED.owner_token, " +
+                        "user_id = EXCLUDED.user_id, " +
+                        "request_hash = EXCLUDED.request_hash, status = 'IN_FLIGHT', " +
+                        "response_status = NULL, content_type = NULL, response_body = NULL, " +
+                        "locked_until = EXCLUDED.locked_until, expires_at = EXCLUDED.expires_at, " +
+                        "created_at = EXCLUDED.created_at " +
+                        "WHERE idempotency_keys.expires_at <= ? " +
+                        "OR (idempotency_keys.status = 'IN_FLIGHT' AND idempotency_keys.locked_until <= ? " +
+                        "AND idempotency_keys.request_hash = EXCLUDED.request_hash)",
+                key, ownerToken, userId, requestHash, Timestamp.valueOf(lockedUntil), Timestamp.valueOf(expiresAt), ts,
+                ts, ts
+        ) > 0;
+    }
+
+    public Optional<StoredKey> find(String key, LocalDateTime now) {
+        return jdbcTemplate.query(
+                "SELECT request_hash, status, response_status, content_type, response_body " +
+                        "FROM idempotency_keys WHERE idempotency_key = ? AND expires_at > ?",
+                (rs, rowNum) -> new StoredKey(
+                        rs.getString("request_hash"),
+                        IdempotencyStatus.valueOf(rs.getString("status")),
+                        rs.getInt("response_status"),
+                        rs.getString("content_type"),
+                        rs.getBytes("response_body")
+                ),
+                key, Timestamp.valueOf(now)
+        ).stream().findFirst();
+    }
+
+    // False if the key was taken over meanwhile; the response then belongs to the new owner
+    public boolean complete(String key, String ownerToken, int responseStatus, String contentType,
+                            byte[] responseBody) {
+        return jdbcTemplate.update(
+                "UPDATE idempotency_keys SET status = 'COMPLETED', response_status = ?, " +
+                        "content_type = ?, response_body = ? " +
+                        "WHERE idempotency_key = ? AND owner_token = ? AND status = 'IN_FLIGHT'",
+                responseStatus, contentType, responseBody, key, ownerToken
+        ) > 0;
+    }
+
+    // Frees a key whose request failed without a result worth replaying
+    public void release(String key, String ownerToken) {
+        jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND owner_token = ? " +
+                        "AND status = 'IN_FLIGHT'",
+                key, ownerToken
+        );
+    }
+
+    public int deleteExpired(LocalDateTime now) {
+        return jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE expires_at <= ?", Timestamp.valueOf(now)
+        );
+    }
+}
@@ -0,0 +1,67 @@
+package com.wallet.repository;
+
+import com.wallet.entity.JournalEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Each side of an entry has its own index, so history reads query the debit and credit
+// sides separately (one index range each) rather than with an OR across both columns
+@Repository
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, String> {
+
+    @Query("SELECT j FROM JournalEntry j WHERE j.debitUserId = :userId " +
+            "ORDER BY j.createdAt DESC, j.id DESC")
+    List<JournalEntry> findFirstDebitPage(@Param("userId") String userId, Pageable pageable);
+
+    @Query("SELECT j FROM JournalEntry j WHERE j.creditUserId = :userId " +
+            "ORDER BY j.createdAt DESC, j.id DESC")
+    List<JournalEntry> findFirstCreditPage(@Param("userId") String userId, Pageable pageable);
+
+    @Query("SELECT j FROM JournalEntry j WHERE j.debitUserId = :userId AND j.createdAt <= :createdAt " +
+            "AND (j.createdAt < :createdAt OR j.id < :id) " +
+            "ORDER BY j.createdAt DESC, j.id DESC")
+    List<JournalEntry> findDebitPageBefore(@Param("userId") String userId,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") String id,
+                                           Pageable pageable);
+
+    @Query("SELECT j FROM JournalEntry j WHERE j.creditUserId = :userId AND j.createdAt <= :createdAt " +
+            "AND (j.createdAt < :createdAt OR j.id < :id) " +
+            "ORDER BY j.createdAt DESC, j.id DESC")
+    List<JournalEntry> findCreditPageBefore(@Param("userId") String userId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") String id,
+                                            Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT j FROM JournalEntry j WHERE j.debitUserId = :userId " +
+            "AND j.createdAt >= :from AND j.createdAt < :to " +
+            "ORDER BY j.createdAt, j.id")
+    Stream<JournalEntry> streamByDebitUserBetween(@Param("userId") String userId,
+                                                  @Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT j FROM JournalEntry j WHERE j.creditUserId = :userId " +
+            "AND j.createdAt >= :from AND j.createdAt < :to " +
+            "ORDER BY j.createdAt, j.id")
+    Stream<JournalEntry> streamByCreditUserBetween(@Param("userId") String userId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+}
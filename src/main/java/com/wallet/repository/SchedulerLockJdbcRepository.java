@@ -0,0 +1,35 @@
+package com.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Repository
+@RequiredArgsConstructor
+public class SchedulerLockJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // True when the caller now holds the lock: it did not exist yet or had run out
+    public boolean tryLock(String name, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        Timestamp ts = Timestamp.valueOf(now);
+        return jdbcTemplate.update(
+                "INSERT INTO scheduler_locks (name, locked_until, locked_by, locked_at) VALUES (?, ?, ?, ?) " +
+                        "ON CONFLICT (name) DO UPDATE SET locked_until = EXCLUDED.locked_until, " +
+                        "locked_by = EXCLUDED.locked_by, locked_at = EXCLUDED.locked_at " +
+                        "WHERE scheduler_locks.locked_until <= ?",
+                name, Timestamp.valueOf(lockedUntil), owner, ts, ts
+        ) > 0;
+    }
+
+    // Shortens a lock the caller still holds, so it frees up at releaseAt instead
+    public void unlock(String name, String owner, LocalDateTime releaseAt) {
+        jdbcTemplate.update(
+                "UPDATE scheduler_locks SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                Timestamp.valueOf(releaseAt), name, owner
+        );
+    }
+}
@@ -2,15 +2,73 @@ package com.wallet.repository;
 
 import com.wallet.entity.Transaction;
 import com.wallet.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
-    List<Transaction> findByUserOrderByCreatedAtDesc(User user);
     Optional<Transaction> findByReference(String reference);
     Optional<Transaction> findByPaystackReference(String paystackReference);
-}
\ No newline at end of file
+
+    // 0 when the transaction was already successful
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.enums.TransactionStatus.SUCCESS, " +
+            "t.updatedAt = :now WHERE t.id = :id " +
+            "AND t.status <> com.wallet.enums.TransactionStatus.SUCCESS")
+    int markSuccessful(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = com.wallet.enums.TransactionStatus.FAILED, " +
+            "t.updatedAt = :now WHERE t.reference = :reference " +
+            "AND t.status = com.wallet.enums.TransactionStatus.PENDING")
+    int markFailedIfPending(@Param("reference") String reference, @Param("now") LocalDateTime now);
+
+    // Keyset pages over idx_user_id_created_at; List return types skip the COUNT query
+    @Query("SELECT t FROM Transaction t WHERE t.user = :user " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transaction> findFirstPage(@Param("user") User user, Pageable pageable);
+
+    // The redundant "<=" bounds the index range so the seek does not scan newer rows
+    @Query("SELECT t FROM Transaction t WHERE t.user = :user AND t.createdAt <= :createdAt " +
+            "AND (t.createdAt < :createdAt OR t.id < :id) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transaction> findPageBefore(@Param("user") User user,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") String id,
+                                     Pageable pageable);
+
+    // Keyset pages of deposits still PENDING before a cutoff, for the reconciler;
+    // served by the partial index idx_transactions_pending_deposits
+    @Query("SELECT t FROM Transaction t WHERE t.status = com.wallet.enums.TransactionStatus.PENDING " +
+            "AND t.type = com.wallet.enums.TransactionType.DEPOSIT AND t.createdAt < :before " +
+            "AND (t.createdAt > :afterCreatedAt OR (t.createdAt = :afterCreatedAt AND t.id > :afterId)) " +
+            "ORDER BY t.createdAt, t.id")
+    List<Transaction> findStalePendingDeposits(@Param("before") LocalDateTime before,
+                                               @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                               @Param("afterId") String afterId,
+                                               Pageable pageable);
+
+    // Forward-only cursor for exports; callers must consume it inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.user = :user " +
+            "AND t.createdAt >= :from AND t.createdAt < :to " +
+            "ORDER BY t.createdAt, t.id")
+    Stream<Transaction> streamByUserBetween(@Param("user") User user,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
+}
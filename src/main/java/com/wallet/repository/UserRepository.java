@@ -11,5 +11,4 @@ public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByGoogleId(String googleId);
     Optional<User> findByEmail(String email);
     Optional<User> findByWalletNumber(String walletNumber);
-    boolean existsByWalletNumber(String walletNumber);
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+package com.wallet.repository;
+
+import com.wallet.entity.JournalEntry;
+import com.wallet.entity.TimeOrderedIdGenerator;
+import com.wallet.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Plain JDBC access to wallets/transactions for the batched write paths,
+// where one statement per row through the EntityManager is too expensive
+@Repository
+@RequiredArgsConstructor
+public class WalletJdbcRepository {
+
+    // Read back from every balance update, so the new balances need no SELECT of their own
+    private static final String[] RETURNED_COLUMNS = {"user_id", "balance", "currency", "balance_version"};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record BalanceChange(String userId, BigDecimal amount) {
+    }
+
+    public record VersionedBalance(BigDecimal balance, String currency, long version) {
+    }
+
+    public Optional<BigDecimal> findBalanceByUserId(String userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT w.balance + (SELECT COALESCE(SUM(s.balance), 0) FROM wallet_balance_slots s " +
+                        "WHERE s.user_id = w.user_id) FROM wallets w WHERE w.user_id = ?",
+                BigDecimal.class, userId
+        ).stream().findFirst();
+    }
+
+    // Wallet rows only; balances held in slots of sharded wallets are not included
+    public Map<String, VersionedBalance> findVersionedBalances(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, VersionedBalance> balances = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT user_id, balance, currency, balance_version FROM wallets WHERE user_id IN (" +
+                        String.join(", ", Collections.nCopies(userIds.size(), "?")) + ")",
+                rs -> {
+                    balances.put(rs.getString("user_id"), new VersionedBalance(
+                            rs.getBigDecimal("balance"), rs.getString("currency"), rs.getLong("balance_version")));
+                },
+                userIds.toArray()
+        );
+        return balances;
+    }
+
+    // Locks these wallet rows ordered by id, the order lockForTransfer uses, so transactions
+    // touching overlapping wallets queue instead of deadlocking; must run in a transaction
+    public void lockWallets(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.queryForList(
+                "SELECT id FROM wallets WHERE user_id IN (" +
+                        String.join(", ", Collections.nCopies(userIds.size(), "?")) + ") ORDER BY id FOR UPDATE",
+                String.class,
+                userIds.toArray()
+        );
+    }
+
+    // Creates a missing wallet row outside signup; the wallet number is copied from the user,
+    // since receivers are found by wallets.wallet_number
+    public void insertWalletIfAbsent(String userId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update(
+                "INSERT INTO wallets (id, user_id, wallet_number, balance, currency, is_active, " +
+                        "created_at, updated_at) " +
+                        "SELECT ?, u.id, u.wallet_number, 0, 'NGN', true, ?, ? FROM users u WHERE u.id = ? " +
+                        "ON CONFLICT (user_id) DO NOTHING",
+                TimeOrderedIdGenerator.nextId(), now, now, userId
+        );
+    }
+
+    // Credits the user's wallet row, creating the row first if the user has none yet
+    public void creditCreatingWallet(String userId, BigDecimal amount, LocalDateTime now) {
+        List<BalanceChange> credit = List.of(new BalanceChange(userId, amount));
+        if (creditAll(credit, now)[0] == 0) {
+            insertWalletIfAbsent(userId);
+            creditAll(credit, now);
+        }
+    }
+
+    // Guarded debits; an entry of 0 in the result means that wallet could not cover its amount
+    public int[] debitAll(List<BalanceChange> debits, LocalDateTime now) {
+        Timestamp ts = Timestamp.valueOf(now);
+        return updateBalances(
+                "UPDATE wallets SET balance = balance - ?, balance_version = balance_version + 1, " +
+                        "last_transaction_at = ?, updated_at = ? " +
+                        "WHERE user_id = ? AND balance >= ?",
+                debits.stream()
+                        .map(d -> new Object[]{d.amount(), ts, ts, d.userId(), d.amount()})
+                        .toList()
+        );
+    }
+
+    public int[] creditAll(List<BalanceChange> credits, LocalDateTime now) {
+        Timestamp ts = Timestamp.valueOf(now);
+        return updateBalances(
+                "UPDATE wallets SET balance = balance + ?, balance_version = balance_version + 1, " +
+                        "last_transaction_at = ?, updated_at = ? " +
+                        "WHERE user_id = ?",
+                credits.stream()
+                        .map(c -> new Object[]{c.amount(), ts, ts, c.userId()})
+                        .toList()
+        );
+    }
+
+    // Wallet rows this transaction has changed through debitAll/creditAll, with the balance
+    // and version each was left at; empty outside a transaction
+    @SuppressWarnings("unchecked")
+    public Map<String, VersionedBalance> changedBalances() {
+        Map<String, VersionedBalance> changed =
+                (Map<String, VersionedBalance>) TransactionSynchronizationManager.getResource(this);
+        return changed == null ? Map.of() : changed;
+    }
+
+    // One batch; RETURNING rows come back for the updates that matched
+    private int[] updateBalances(String sql, List<Object[]> rows) {
+        GeneratedKeyHolder returned = new GeneratedKeyHolder();
+        int[] counts = jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(sql, RETURNED_COLUMNS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        new ArgumentPreparedStatementSetter(rows.get(i)).setValues(ps);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                returned
+        );
+        recordChanged(returned.getKeyList());
+        return counts;
+    }
+
+    // A wallet updated several times in one transaction keeps its newest version
+    @SuppressWarnings("unchecked")
+    private void recordChanged(List<Map<String, Object>> rows) {
+        if (rows.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Map<String, VersionedBalance> changed =
+                (Map<String, VersionedBalance>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            changed = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, changed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(WalletJdbcRepository.this);
+                }
+            });
+        }
+        for (Map<String, Object> row : rows) {
+            VersionedBalance balance = new VersionedBalance((BigDecimal) row.get("balance"),
+                    (String) row.get("currency"), ((Number) row.get("balance_version")).longValue());
+            changed.merge((String) row.get("user_id"), balance,
+                    (current, updated) -> updated.version() > current.version() ? updated : current);
+        }
+    }
+
+    // Entries are immutable; ids and timestamps must already be set
+    public void insertJournalEntries(List<JournalEntry> entries) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO journal_entries (id, reference, amount, debit_user_id, debit_wallet_number, " +
+                        "credit_user_id, credit_wallet_number, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                entries.stream()
+                        .map(e -> new Object[]{
+                                e.getId(),
+                                e.getReference(),
+                                e.getAmount(),
+                                e.getDebitUserId(),
+                                e.getDebitWalletNumber(),
+                                e.getCreditUserId(),
+                                e.getCreditWalletNumber(),
+                                Timestamp.valueOf(e.getCreatedAt())
+                        })
+                        .toList()
+        );
+    }
+
+    // Transfers only move money between wallets, so all balances together must equal
+    // successful deposits minus withdrawals; anything else is money created or lost. Journal
+    // entries need no check of their own, since each one debits and credits the same amount.
+    public BigDecimal findUnexplainedBalance() {
+        return jdbcTemplate.queryForObject(
+                "SELECT (SELECT COALESCE(SUM(balance), 0) FROM wallets) + " +
+                        "(SELECT COALESCE(SUM(balance), 0) FROM wallet_balance_slots) - " +
+                        "(SELECT COALESCE(SUM(CASE WHEN type = 'DEPOSIT' THEN amount ELSE -ABS(amount) END), 0) " +
+                        "FROM transactions WHERE type IN ('DEPOSIT', 'WITHDRAWAL') AND status = 'SUCCESS')",
+                BigDecimal.class
+        );
+    }
+
+    // Rows are written in their final state; ids and timestamps must already be set
+    public void insertTransactions(List<Transaction> transactions) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transactions (id, reference, user_id, type, amount, status, " +
+                        "sender_wallet_number, receiver_wallet_number, paystack_reference, " +
+                        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                transactions.stream()
+                        .map(t -> new Object[]{
+                                t.getId(),
+                                t.getReference(),
+                                t.getUser().getId(),
+                                t.getType().name(),
+                                t.getAmount(),
+                                t.getStatus().name(),
+                                t.getSenderWalletNumber(),
+                                t.getReceiverWalletNumber(),
+                                t.getPaystackReference(),
+                                Timestamp.valueOf(t.getCreatedAt()),
+                                Timestamp.valueOf(t.getUpdatedAt())
+                        })
+                        .toList()
+        );
+    }
+}
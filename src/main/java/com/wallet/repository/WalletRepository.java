@@ -2,9 +2,15 @@ package com.wallet.repository;
 
 import com.wallet.entity.User;
 import com.wallet.entity.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +19,17 @@ public interface WalletRepository extends JpaRepository<Wallet, String> {
     Optional<Wallet> findByUserId(String userId);
 
     Optional<Wallet> findByWalletNumber(String receiverWalletNumber);
-}
\ No newline at end of file
+
+    List<Wallet> findByWalletNumberIn(Collection<String> walletNumbers);
+
+    @Query("SELECT w.user.id FROM Wallet w WHERE w.walletNumber = :walletNumber")
+    Optional<String> findUserIdByWalletNumber(@Param("walletNumber") String walletNumber);
+
+    // Locks the sender and receiver rows ordered by id, so opposing transfers
+    // always queue on the same row first instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.user.id = :userId OR w.walletNumber = :walletNumber " +
+            "ORDER BY w.id")
+    List<Wallet> lockForTransfer(@Param("userId") String senderId,
+                                 @Param("walletNumber") String receiverWalletNumber);
+}
@@ -0,0 +1,96 @@
+package com.wallet.repository;
+
+import com.wallet.entity.TimeOrderedIdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@Repository
+@RequiredArgsConstructor
+public class WalletSlotJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record ShardedWallet(String userId, String walletNumber, int slots) {
+    }
+
+    public record SlotCredit(String userId, int slot, BigDecimal amount) {
+    }
+
+    public List<ShardedWallet> findShardedWallets() {
+        return jdbcTemplate.query(
+                "SELECT user_id, wallet_number, balance_slots FROM wallets WHERE balance_slots > 0",
+                (rs, rowNum) -> new ShardedWallet(
+                        rs.getString("user_id"), rs.getString("wallet_number"), rs.getInt("balance_slots"))
+        );
+    }
+
+    // Slot rows are created before the wallet is marked sharded, so credits never miss a row
+    public void enable(String walletNumber, int slots) {
+        String userId = jdbcTemplate.queryForList(
+                "SELECT user_id FROM wallets WHERE wallet_number = ?", String.class, walletNumber
+        ).stream().findFirst().orElse(null);
+        if (userId == null) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO wallet_balance_slots (id, user_id, slot, balance) VALUES (?, ?, ?, 0) " +
+                        "ON CONFLICT (user_id, slot) DO NOTHING",
+                IntStream.range(0, slots)
+                        .mapToObj(slot -> new Object[]{TimeOrderedIdGenerator.nextId(), userId, slot})
+                        .toList()
+        );
+        jdbcTemplate.update("UPDATE wallets SET balance_slots = ? WHERE user_id = ?", slots, userId);
+    }
+
+    public void disable(String userId) {
+        jdbcTemplate.update("UPDATE wallets SET balance_slots = 0 WHERE user_id = ?", userId);
+    }
+
+    public int[] creditAll(List<SlotCredit> credits, LocalDateTime now) {
+        Timestamp ts = Timestamp.valueOf(now);
+        return jdbcTemplate.batchUpdate(
+                "UPDATE wallet_balance_slots SET balance = balance + ?, updated_at = ? " +
+                        "WHERE user_id = ? AND slot = ?",
+                credits.stream()
+                        .map(c -> new Object[]{c.amount(), ts, c.userId(), c.slot()})
+                        .toList()
+        );
+    }
+
+    // Moves everything held in the slots onto the wallet row; must run in a transaction.
+    // Locks the wallet row, then the slots in slot order. A transaction that credits slots
+    // takes one slot per wallet in (user_id, slot) order and sweeps a wallet only before
+    // crediting it, so credits and sweeps of one wallet cannot deadlock. Two transfers in
+    // opposite directions between sharded wallets that both fall back to a sweep still can;
+    // Postgres aborts one of them and the transfer retry runs it again.
+    public void sweep(String userId, LocalDateTime now) {
+        jdbcTemplate.queryForList("SELECT id FROM wallets WHERE user_id = ? FOR UPDATE", String.class, userId);
+
+        Timestamp ts = Timestamp.valueOf(now);
+        jdbcTemplate.update(
+                "WITH swept AS (" +
+                        "UPDATE wallet_balance_slots s SET balance = 0, updated_at = ? " +
+                        "FROM (SELECT id, balance FROM wallet_balance_slots " +
+                        "WHERE user_id = ? AND balance <> 0 ORDER BY slot FOR UPDATE) old " +
+                        "WHERE s.id = old.id RETURNING old.balance) " +
+                        "UPDATE wallets SET balance = balance + (SELECT COALESCE(SUM(balance), 0) FROM swept), " +
+                        "balance_version = balance_version + 1, " +
+                        "updated_at = ? WHERE user_id = ? AND EXISTS (SELECT 1 FROM swept)",
+                ts, userId, ts, userId
+        );
+    }
+
+    public List<String> findUserIdsWithSlotBalance() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM wallet_balance_slots WHERE balance <> 0", String.class
+        );
+    }
+}
@@ -0,0 +1,95 @@
+package com.wallet.repository;
+
+import com.wallet.entity.TimeOrderedIdGenerator;
+import com.wallet.enums.WebhookStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class WebhookInboxJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record ClaimedWebhook(String id, String payload, int attempts, LocalDateTime receivedAt) {
+    }
+
+    public record FailedWebhook(String id, WebhookStatus status, LocalDateTime nextAttemptAt, String error) {
+    }
+
+    public record InboxStats(long depth, LocalDateTime oldestReceivedAt) {
+    }
+
+    // False when the same payload is already in the inbox
+    public boolean insert(String payloadHash, String payload, LocalDateTime now) {
+        Timestamp ts = Timestamp.valueOf(now);
+        return jdbcTemplate.update(
+                "INSERT INTO webhook_inbox (id, payload_hash, payload, status, attempts, " +
+                        "next_attempt_at, received_at) VALUES (?, ?, ?, 'PENDING', 0, ?, ?) " +
+                        "ON CONFLICT (payload_hash) DO NOTHING",
+                TimeOrderedIdGenerator.nextId(), payloadHash, payload, ts, ts
+        ) > 0;
+    }
+
+    // Leases due entries to the caller by pushing next_attempt_at past the lease; entries
+    // of a worker that dies mid-batch become due again once the lease runs out.
+    // SKIP LOCKED lets several instances claim concurrently without handing out the same row.
+    public List<ClaimedWebhook> claim(int limit, LocalDateTime now, LocalDateTime leaseUntil) {
+        return jdbcTemplate.query(
+                "UPDATE webhook_inbox SET attempts = attempts + 1, next_attempt_at = ? " +
+                        "WHERE id IN (SELECT id FROM webhook_inbox " +
+                        "WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+                        "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id, payload, attempts, received_at",
+                (rs, rowNum) -> new ClaimedWebhook(
+                        rs.getString("id"),
+                        rs.getString("payload"),
+                        rs.getInt("attempts"),
+                        rs.getTimestamp("received_at").toLocalDateTime()
+                ),
+                Timestamp.valueOf(leaseUntil), Timestamp.valueOf(now), limit
+        );
+    }
+
+    public void markProcessed(List<String> ids, LocalDateTime now) {
+        Timestamp ts = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(
+                "UPDATE webhook_inbox SET status = 'PROCESSED', processed_at = ?, last_error = NULL " +
+                        "WHERE id = ?",
+                ids.stream().map(id -> new Object[]{ts, id}).toList()
+        );
+    }
+
+    public void markFailed(List<FailedWebhook> failures) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE webhook_inbox SET status = ?, next_attempt_at = ?, last_error = ? WHERE id = ?",
+                failures.stream()
+                        .map(f -> new Object[]{
+                                f.status().name(), Timestamp.valueOf(f.nextAttemptAt()), f.error(), f.id()
+                        })
+                        .toList()
+        );
+    }
+
+    public InboxStats stats() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*), min(received_at) FROM webhook_inbox WHERE status = 'PENDING'",
+                (rs, rowNum) -> {
+                    Timestamp oldest = rs.getTimestamp(2);
+                    return new InboxStats(rs.getLong(1), oldest == null ? null : oldest.toLocalDateTime());
+                }
+        );
+    }
+
+    public int deleteProcessedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(
+                "DELETE FROM webhook_inbox WHERE status = 'PROCESSED' AND processed_at < ?",
+                Timestamp.valueOf(cutoff)
+        );
+    }
+}
@@ -1,16 +1,17 @@
 package com.wallet.security;
 
+import com.wallet.service.ApiKeyCache.CachedApiKey;
 import com.wallet.service.ApiKeyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -21,11 +22,7 @@ import java.io.IOException;
 public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
 
     private final ApiKeyService apiKeyService;
-
-    @Lazy
-    private final UserDetailsService userDetailsService;
-
-
+    private final MeterRegistry meterRegistry;
 
     @Override
     protected void doFilterInternal(
@@ -37,11 +34,10 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
         final String apiKey = request.getHeader("x-api-key");
 
         if (apiKey != null) {
-            var apiKeyEntity = apiKeyService.validateApiKey(apiKey);
-            if (apiKeyEntity != null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(
-                        apiKeyEntity.getUser().getEmail()
-                );
+            Timer.Sample sample = Timer.start(meterRegistry);
+            CachedApiKey validKey = apiKeyService.validateApiKey(apiKey);
+            if (validKey != null) {
+                UserDetails userDetails = new CustomUserDetails(validKey.owner().toUser());
 
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
@@ -49,12 +45,14 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
                                 null,
                                 userDetails.getAuthorities()
                         );
-                authToken.setDetails(apiKeyEntity.getPermissions());
+                authToken.setDetails(validKey.permissions());
                 SecurityContextHolder.getContext().setAuthentication(authToken);
 
                 // Update last used timestamp
-                apiKeyService.updateLastUsed(apiKeyEntity);
+                apiKeyService.updateLastUsed(validKey.id());
             }
+            sample.stop(meterRegistry.timer("auth.filter",
+                    "type", "api_key", "result", validKey != null ? "authenticated" : "rejected"));
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,226 @@
+package com.wallet.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.dtos.response.ApiResponse;
+import com.wallet.repository.IdempotencyJdbcRepository.StoredKey;
+import com.wallet.service.IdempotencyStore;
+import com.wallet.service.IdempotencyStore.Outcome;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+// Idempotency-Key support for the money-moving endpoints. The first request with a key runs
+// and its response is stored; a retry with the same key and body gets that response back
+// without reaching the controller. Registered as a plain servlet filter, which runs after
+// the Spring Security chain, so the caller is already authenticated.
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String CLAIM_ATTRIBUTE = IdempotencyFilter.class.getName() + ".claim";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.idempotency.paths:/wallet/transfer,/wallet/transfers/batch,/wallet/deposit}")
+    private Set<String> paths;
+
+    private record Claim(String key, String ownerToken, String requestHash) {
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        // Second half of an async request (deposit); the key was claimed on the first dispatch
+        if (isAsyncDispatch(request)) {
+            proceed(request, response, filterChain);
+            return;
+        }
+
+        String header = request.getHeader(HEADER);
+        String userId = Principals.currentUserId();
+        if (header == null || userId == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (header.isBlank() || header.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        // The body is read up front to hash it, then handed to the controller from memory
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String key = userId + ":" + header;
+        String requestHash = hash(request, body);
+
+        Outcome outcome = idempotencyStore.begin(key, userId, requestHash);
+        switch (outcome.decision()) {
+            case REPLAY -> replay(response, outcome.stored());
+            case MISMATCH -> writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request");
+            case IN_PROGRESS -> writeError(response, HttpStatus.CONFLICT,
+                    "A request with this " + HEADER + " is still in progress");
+            case PROCEED -> {
+                request.setAttribute(CLAIM_ATTRIBUTE, new Claim(key, outcome.ownerToken(), requestHash));
+                proceed(new CachedBodyRequest(request, body),
+                        new ContentCachingResponseWrapper(response), filterChain);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !paths.contains(request.getServletPath());
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    // Runs the request and, once it has fully completed, stores or releases its key
+    private void proceed(HttpServletRequest request, HttpServletResponse response,
+                         FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            Claim claim = (Claim) request.getAttribute(CLAIM_ATTRIBUTE);
+            if (claim != null) {
+                request.removeAttribute(CLAIM_ATTRIBUTE);
+                idempotencyStore.release(claim.key(), claim.ownerToken());
+            }
+            throw e;
+        }
+        if (isAsyncStarted(request)) {
+            return;
+        }
+
+        Claim claim = (Claim) request.getAttribute(CLAIM_ATTRIBUTE);
+        ContentCachingResponseWrapper cached =
+                WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (claim == null || cached == null) {
+            return;
+        }
+        request.removeAttribute(CLAIM_ATTRIBUTE);
+
+        // Server errors are not final; the client's retry should run again
+        if (cached.getStatus() < 500) {
+            idempotencyStore.complete(claim.key(), claim.ownerToken(), claim.requestHash(), cached.getStatus(),
+                    cached.getContentType(), cached.getContentAsByteArray());
+        } else {
+            idempotencyStore.release(claim.key(), claim.ownerToken());
+        }
+        cached.copyBodyToResponse();
+    }
+
+    private void replay(HttpServletResponse response, StoredKey stored) throws IOException {
+        response.setStatus(stored.responseStatus());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.responseBody() != null) {
+            response.setContentLength(stored.responseBody().length);
+            response.getOutputStream().write(stored.responseBody());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiResponse.error(message));
+    }
+
+    // The same key on another endpoint or with another body must not replay
+    private static String hash(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getServletPath() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
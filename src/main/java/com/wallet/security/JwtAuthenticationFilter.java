@@ -1,7 +1,11 @@
 package com.wallet.security;
 
 import com.wallet.entity.User;
+import com.wallet.security.PrincipalCache.UserSnapshot;
 import com.wallet.service.UserService;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,22 +13,20 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
     private final UserService userService;
+    private final PrincipalCache principalCache;
+    private final MeterRegistry meterRegistry;
 
     @Override
     protected void doFilterInternal(
@@ -40,29 +42,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
+        // Signature and expiry are checked exactly once per request
+        Timer.Sample sample = Timer.start(meterRegistry);
+        VerifiedToken token;
+        try {
+            token = jwtService.verify(authHeader.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            sample.stop(meterRegistry.timer("auth.filter", "type", "jwt", "result", "rejected"));
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Optional<User> optionalUser = userService.findByEmail(userEmail); // load entity
-            if (optionalUser.isPresent()) {
-                User user = optionalUser.get();
-                if (jwtService.isTokenValid(jwt, user)) {       // adjust isTokenValid(User) if needed
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+        boolean authenticated = false;
+        if (token.subject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserSnapshot snapshot = principalCache.get(token.subject(), subject ->
+                    userService.findByEmail(subject).map(UserSnapshot::of).orElse(null));
+            if (snapshot != null && snapshot.active()) {
+                User user = snapshot.toUser();
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+                authenticated = true;
             }
         }
+        sample.stop(meterRegistry.timer("auth.filter",
+                "type", "jwt", "result", authenticated ? "authenticated" : "rejected"));
 
         filterChain.doFilter(request, response);
     }
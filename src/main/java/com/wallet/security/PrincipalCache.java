@@ -0,0 +1,80 @@
+package com.wallet.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Snapshots of authenticated users by JWT subject, so a request does not pay a users
+// lookup before any business logic runs. Entries are evicted on every instance through
+// UserCacheEvictionListener; while the notification connection is down the cache is
+// bypassed, since a deactivation could be missed.
+@Component
+@RequiredArgsConstructor
+public class PrincipalCache {
+
+    private final MeterRegistry meterRegistry;
+    private final DatabaseNotifications notifications;
+
+    @Value("${app.jwt.principal-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.jwt.principal-cache.ttl:60s}")
+    private Duration ttl;
+
+    private Cache<String, UserSnapshot> cache;
+
+    // Only the fields controllers read from the principal
+    public record UserSnapshot(String id, String email, String walletNumber, boolean active) {
+
+        public static UserSnapshot of(User user) {
+            return new UserSnapshot(user.getId(), user.getEmail(), user.getWalletNumber(), user.isActive());
+        }
+
+        // A fresh detached User per request, so nothing mutable is shared between threads
+        public User toUser() {
+            return User.builder()
+                    .id(id)
+                    .email(email)
+                    .walletNumber(walletNumber)
+                    .isActive(active)
+                    .build();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+    }
+
+    // Unknown subjects (loader returns null) are not cached
+    public UserSnapshot get(String subject, Function<String, UserSnapshot> loader) {
+        if (!notifications.isListening()) {
+            return loader.apply(subject);
+        }
+        return cache.get(subject, loader);
+    }
+
+    // By id rather than subject, so an entry under an email the user no longer has goes too
+    public void evictUser(String userId) {
+        cache.asMap().values().removeIf(snapshot -> snapshot.id().equals(userId));
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
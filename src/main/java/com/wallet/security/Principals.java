@@ -0,0 +1,27 @@
+package com.wallet.security;
+
+import com.wallet.entity.User;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+final class Principals {
+
+    private Principals() {
+    }
+
+    // Id of the authenticated user, whether they came in with a JWT or an API key
+    static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return null;
+        }
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof User user) {
+            return user.getId();
+        }
+        if (principal instanceof CustomUserDetails details) {
+            return details.getUser().getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,145 @@
+package com.wallet.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.config.ReadReplicaRoutingDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Read-your-writes on top of replica routing. Any write request remembers when the caller
+// last wrote; a read of a configured endpoint within that endpoint's window is pinned to
+// the primary, so a balance read right after a transfer never sees the replica's older state.
+// Registered as a plain servlet filter, which runs after the Spring Security chain.
+// Writes are announced to the other instances over NOTIFY, so no sticky sessions are needed;
+// a read that arrives elsewhere before the notification does can still hit the replica.
+// While notifications are down, and for one window after they reconnect, every configured
+// read goes to the primary, since writes made on other instances meanwhile were never seen.
+@Component
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final String CHANNEL = "wallet_writes";
+
+    private final DatabaseNotifications databaseNotifications;
+
+    // Entries of the form path=window, e.g. /wallet/balance=5s; paths match by prefix
+    @Value("${app.datasource.replica.read-your-writes:}")
+    private List<String> windowConfig;
+
+    private final Map<String, Duration> windows = new LinkedHashMap<>();
+
+    // user id -> System.nanoTime() of that user's last write request
+    private Cache<String, Long> lastWrites;
+
+    private Duration longestWindow;
+
+    // System.nanoTime() of the last (re)connect of the notification listener
+    private volatile long resyncedAt = System.nanoTime();
+
+    @PostConstruct
+    public void init() {
+        Duration longest = Duration.ZERO;
+        for (String entry : windowConfig) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalStateException("Expected path=window in read-your-writes, got " + entry);
+            }
+            Duration window = DurationStyle.detectAndParse(entry.substring(separator + 1).trim());
+            windows.put(entry.substring(0, separator).trim(), window);
+            if (window.compareTo(longest) > 0) {
+                longest = window;
+            }
+        }
+        longestWindow = longest;
+        lastWrites = Caffeine.newBuilder()
+                .expireAfterWrite(longest)
+                .maximumSize(100_000)
+                .build();
+        databaseNotifications.subscribe(CHANNEL,
+                userId -> lastWrites.put(userId, System.nanoTime()),
+                () -> resyncedAt = System.nanoTime());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String userId = Principals.currentUserId();
+        if (userId == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            // Recorded up front; a write that fails only costs a few primary reads
+            lastWrites.put(userId, System.nanoTime());
+            announce(userId);
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Duration window = windowFor(request.getServletPath());
+        if (window == null || !mustReadPrimary(userId, window)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReadReplicaRoutingDataSource.pinToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadReplicaRoutingDataSource.unpin();
+        }
+    }
+
+    private boolean mustReadPrimary(String userId, Duration window) {
+        long now = System.nanoTime();
+        if (!databaseNotifications.isListening() || now - resyncedAt <= longestWindow.toNanos()) {
+            return true;
+        }
+        Long lastWrite = lastWrites.getIfPresent(userId);
+        return lastWrite != null && now - lastWrite <= window.toNanos();
+    }
+
+    // Outside any transaction, so the other instances are notified before the write itself runs
+    private void announce(String userId) {
+        try {
+            databaseNotifications.send(CHANNEL, userId);
+        } catch (DataAccessException e) {
+            log.warn("Could not announce write by {} to other instances: {}", userId, e.getMessage());
+        }
+    }
+
+    private Duration windowFor(String path) {
+        for (Map.Entry<String, Duration> entry : windows.entrySet()) {
+            if (path.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -53,6 +53,8 @@ public class SecurityConfig {
                                 "/oauth2/**",
                                 "/error/**",
                                 "/favicon",
+                                "/actuator/health",
+                                "/actuator/prometheus",
                                 "/"
                         ).permitAll()
 
@@ -106,9 +108,9 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(List.of("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList(
-                "Authorization", "Content-Type", "x-api-key", "X-Requested-With"
+                "Authorization", "Content-Type", "x-api-key", "X-Requested-With", IdempotencyFilter.HEADER
         ));
-        configuration.setExposedHeaders(List.of("Authorization"));
+        configuration.setExposedHeaders(List.of("Authorization", IdempotencyFilter.REPLAYED_HEADER));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -0,0 +1,48 @@
+package com.wallet.security;
+
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.service.ApiKeyCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Drops the cached principal and the user's cached API keys on every instance whenever a user
+// row changes (e.g. deactivation or a new email). A trigger announces the change, so updates
+// that bypass the entity (bulk JPQL, plain SQL) are seen too, and entries are found by user
+// id, so the principal cached under a replaced email goes as well. Postgres delivers the
+// notification after the commit, so a concurrent request cannot re-cache the old row.
+@Component
+@RequiredArgsConstructor
+public class UserCacheEvictionListener {
+
+    private static final String CHANNEL = "user_changed";
+
+    private final PrincipalCache principalCache;
+    private final ApiKeyCache apiKeyCache;
+    private final DatabaseNotifications notifications;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        notifications.subscribe(CHANNEL, this::onChange, principalCache::clear);
+    }
+
+    // Users change rarely, so a notification per row costs nothing on any hot path
+    @EventListener(ApplicationReadyEvent.class)
+    public void createTrigger() {
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION notify_user_changed() RETURNS trigger AS $$ " +
+                "BEGIN PERFORM pg_notify('" + CHANNEL + "', OLD.id); RETURN NULL; END $$ LANGUAGE plpgsql");
+        jdbcTemplate.execute("DO $$ BEGIN " +
+                "CREATE TRIGGER users_changed AFTER UPDATE OR DELETE ON users " +
+                "FOR EACH ROW EXECUTE FUNCTION notify_user_changed(); " +
+                "EXCEPTION WHEN duplicate_object THEN NULL; END $$");
+    }
+
+    private void onChange(String userId) {
+        principalCache.evictUser(userId);
+        apiKeyCache.evictOwner(userId);
+    }
+}
@@ -0,0 +1,7 @@
+package com.wallet.security;
+
+import java.time.Instant;
+
+// Claims of a JWT whose signature and expiry have already been checked
+public record VerifiedToken(String subject, Instant expiresAt) {
+}
@@ -0,0 +1,127 @@
+package com.wallet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.enums.ApiKeyPermission;
+import com.wallet.security.PrincipalCache.UserSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.function.Function;
+
+// Validated API keys, so x-api-key authentication skips the database on a hit.
+// An entry never outlives the key's own expiry. The owner is held as an immutable snapshot,
+// dropped whenever the user row changes, so deactivating a user also locks out their keys.
+// Evictions reach every instance over NOTIFY when the changing transaction commits; while
+// the notification connection is down the cache is bypassed, since a revocation could be
+// missed, and it is emptied when the connection comes back.
+@Component
+@RequiredArgsConstructor
+public class ApiKeyCache {
+
+    private static final String CHANNEL = "api_key_evictions";
+    private static final String KEY = "key:";
+
+    private final MeterRegistry meterRegistry;
+    private final DatabaseNotifications notifications;
+
+    @Value("${app.api-key.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.api-key.cache.ttl:5m}")
+    private Duration ttl;
+
+    private Cache<String, CachedApiKey> cache;
+
+    public record CachedApiKey(String id, UserSnapshot owner, Set<ApiKeyPermission> permissions,
+                               LocalDateTime expiresAt) {
+
+        public boolean isExpired() {
+            return expiresAt.isBefore(LocalDateTime.now());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedApiKey>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedApiKey value, long currentTime) {
+                        Duration untilExpiry = Duration.between(LocalDateTime.now(), value.expiresAt());
+                        return Math.max(0, Math.min(ttl.toNanos(), untilExpiry.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedApiKey value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedApiKey value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "api_keys");
+
+        notifications.subscribe(CHANNEL, this::onEviction, cache::invalidateAll);
+    }
+
+    // Unknown or inactive keys (loader returns null) are not cached
+    public CachedApiKey get(String apiKey, Function<String, CachedApiKey> loader) {
+        if (!notifications.isListening()) {
+            return loader.apply(apiKey);
+        }
+        return cache.get(apiKey, loader);
+    }
+
+    // Call in the transaction that changed the key, by its id, so the key itself never
+    // leaves the database
+    public void evictKey(String apiKeyId) {
+        evictEverywhere(KEY + apiKeyId);
+    }
+
+    // Local only: user changes already reach every instance through UserCacheEvictionListener
+    public void evictOwner(String userId) {
+        cache.asMap().values().removeIf(key -> key.owner().id().equals(userId));
+    }
+
+    // Other instances evict when the transaction commits; this one evicts after the commit
+    // as well, so a concurrent request cannot re-cache the old row in between
+    private void evictEverywhere(String payload) {
+        notifications.send(CHANNEL, payload);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onEviction(payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onEviction(payload);
+            }
+        });
+    }
+
+    // Scans the cache; keys and users change rarely enough that no index is worth keeping
+    private void onEviction(String payload) {
+        if (payload.startsWith(KEY)) {
+            String apiKeyId = payload.substring(KEY.length());
+            cache.asMap().values().removeIf(key -> key.id().equals(apiKeyId));
+        }
+    }
+}
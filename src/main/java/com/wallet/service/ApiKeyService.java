@@ -9,6 +9,8 @@ import com.wallet.enums.ExpiryDuration;
 import com.wallet.exception.BadRequestException;
 import com.wallet.exception.ResourceNotFoundException;
 import com.wallet.repository.ApiKeyRepository;
+import com.wallet.security.PrincipalCache.UserSnapshot;
+import com.wallet.service.ApiKeyCache.CachedApiKey;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -28,6 +30,10 @@ public class ApiKeyService {
 
     private final ApiKeyRepository apiKeyRepository;
 
+    private final ApiKeyCache apiKeyCache;
+
+    private final ApiKeyUsageTracker apiKeyUsageTracker;
+
     @Value("${app.api-key.prefix:sk_live_}")
     private String apiKeyPrefix;
 
@@ -103,6 +109,7 @@ public class ApiKeyService {
         // Deactivate old key
         expiredKey.setActive(false);
         apiKeyRepository.save(expiredKey);
+        apiKeyCache.evictKey(expiredKey.getId());
 
         // Create new key with same permissions
         CreateApiKeyRequest request = new CreateApiKeyRequest();
@@ -113,18 +120,28 @@ public class ApiKeyService {
         return createApiKey(user, request);
     }
 
-    public ApiKey validateApiKey(String apiKeyValue) {
-        return apiKeyRepository.findByKeyAndIsActive(apiKeyValue, true)
+    public CachedApiKey validateApiKey(String apiKeyValue) {
+        CachedApiKey apiKey = apiKeyCache.get(apiKeyValue, this::loadApiKey);
+        return apiKey != null && !apiKey.isExpired() && apiKey.owner().active() ? apiKey : null;
+    }
+
+    private CachedApiKey loadApiKey(String apiKeyValue) {
+        return apiKeyRepository.findActiveByKeyWithUser(apiKeyValue)
                 .filter(key -> !key.isExpired())
+                .map(key -> new CachedApiKey(
+                        key.getId(),
+                        UserSnapshot.of(key.getUser()),
+                        Set.copyOf(key.getPermissions()),
+                        key.getExpiresAt()
+                ))
                 .orElse(null);
     }
 
-    @Transactional
-    public void updateLastUsed(ApiKey apiKey) {
-        apiKey.setLastUsedAt(LocalDateTime.now());
-        apiKeyRepository.save(apiKey);
+    public void updateLastUsed(String apiKeyId) {
+        apiKeyUsageTracker.record(apiKeyId);
     }
 
+    @Transactional(readOnly = true)
     public List<ApiKey> getUserApiKeys(User user) {
         return apiKeyRepository.findByUser(user);
     }
@@ -0,0 +1,60 @@
+package com.wallet.service;
+
+import com.wallet.repository.ApiKeyJdbcRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Records API key usage in memory and writes it out once per interval, so authenticated
+// reads stay reads. last_used_at lags by at most app.api-key.last-used-staleness-ms.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApiKeyUsageTracker {
+
+    private final ApiKeyJdbcRepository apiKeyJdbcRepository;
+
+    private final Map<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public void record(String apiKeyId) {
+        pending.merge(apiKeyId, LocalDateTime.now(),
+                (current, latest) -> latest.isAfter(current) ? latest : current);
+    }
+
+    @Scheduled(fixedDelayString = "${app.api-key.last-used-staleness-ms:30000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, LocalDateTime> batch = new HashMap<>();
+        pending.forEach((id, lastUsedAt) -> {
+            // Only drop the entry if it was not touched again while we copied it
+            if (pending.remove(id, lastUsedAt)) {
+                batch.put(id, lastUsedAt);
+            }
+        });
+
+        try {
+            apiKeyJdbcRepository.updateLastUsedAt(batch);
+            log.debug("Flushed last-used timestamps for {} API keys", batch.size());
+        } catch (RuntimeException e) {
+            // Put them back for the next run unless a newer timestamp arrived meanwhile
+            batch.forEach((id, lastUsedAt) -> pending.merge(id, lastUsedAt,
+                    (current, failed) -> current.isAfter(failed) ? current : failed));
+            log.error("Failed to flush API key last-used timestamps: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
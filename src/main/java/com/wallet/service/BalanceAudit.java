@@ -0,0 +1,87 @@
+package com.wallet.service;
+
+import com.wallet.entity.BalanceAuditRun;
+import com.wallet.repository.BalanceAuditJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Periodically proves that no money was created or lost: journal entries balance by
+// construction, so one pair of sums over wallets and deposits covers the whole system.
+// The sums scan every wallet, so only the instance holding the "balance-audit" scheduler lock
+// runs them and stores the result in balance_audits. Every instance reports the latest stored
+// result, with its time, so the gauges agree whichever instance is scraped; the others catch
+// up within refresh-interval-ms. Both are NaN until the first audit has completed anywhere.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceAudit {
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final BalanceAuditJdbcRepository balanceAuditJdbcRepository;
+    private final MeterRegistry meterRegistry;
+    private final SchedulerLocks schedulerLocks;
+
+    @Value("${app.wallet.audit.lock-at-most-for:30m}")
+    private Duration lockAtMostFor;
+
+    @Value("${app.wallet.audit.lock-at-least-for:5m}")
+    private Duration lockAtLeastFor;
+
+    private final AtomicReference<BalanceAuditRun> latest = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("wallet.balance.unexplained", latest,
+                        ref -> ref.get() == null ? Double.NaN : ref.get().getUnexplained().doubleValue())
+                .description("Wallet balances not accounted for by deposits and withdrawals, as of the last audit")
+                .register(meterRegistry);
+        Gauge.builder("wallet.balance.audit.timestamp", latest,
+                        ref -> ref.get() == null ? Double.NaN
+                                : ref.get().getAuditedAt().atZone(ZoneId.systemDefault()).toEpochSecond())
+                .description("When the last balance audit completed, in epoch seconds")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.audit.interval-ms:3600000}")
+    public void audit() {
+        schedulerLocks.runLocked("balance-audit", lockAtMostFor, lockAtLeastFor, this::run);
+    }
+
+    // Picks up results other instances stored; one indexed row, so it can run far more often
+    // than the audit itself
+    @Scheduled(fixedDelayString = "${app.wallet.audit.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            balanceAuditJdbcRepository.findLatest().ifPresent(latest::set);
+        } catch (DataAccessException e) {
+            log.warn("Could not load the last balance audit: {}", e.getMessage());
+        }
+    }
+
+    private void run() {
+        BigDecimal difference = walletJdbcRepository.findUnexplainedBalance();
+        LocalDateTime auditedAt = LocalDateTime.now();
+        balanceAuditJdbcRepository.record(difference, auditedAt);
+        latest.set(new BalanceAuditRun(null, difference, auditedAt));
+        if (difference.signum() != 0) {
+            log.error("Balance audit failed: wallets differ from deposits by {}", difference);
+        } else {
+            log.debug("Balance audit passed");
+        }
+    }
+}
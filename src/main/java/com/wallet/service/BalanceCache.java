@@ -0,0 +1,239 @@
+package com.wallet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.VersionedBalance;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Wallet balances by user id for the balance endpoint. Every path that changes a balance
+// writes the new (balance, version) through after its commit, as returned by its UPDATE;
+// since commits can finish in any order, an entry is only ever replaced by one with a
+// higher balance_version. Sharded wallets are never cached: their slot credits do not touch
+// the wallet row.
+//
+// Other instances change balances too. After commit, changed versions are queued and one
+// NOTIFY per publish-interval carries all of them, so balance transactions never touch the
+// notification queue themselves. A notification evicts older entries and is remembered, so
+// a read that started before it cannot put the older balance back. Another instance can
+// serve a balance for up to about publish-interval after it changed here; ttl bounds what a
+// lost notification costs. While the notification connection is down the cache is
+// bypassed, and it is emptied when the connection comes back.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceCache {
+
+    private static final String CHANNEL = "balance_changed";
+    // Postgres rejects payloads of 8000 bytes and more
+    private static final int MAX_PAYLOAD = 7_000;
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final WalletSlots walletSlots;
+    private final DatabaseNotifications notifications;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.wallet.balance-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${app.wallet.balance-cache.ttl:30s}")
+    private Duration ttl;
+
+    @Value("${app.wallet.balance-cache.publish-interval:100ms}")
+    private Duration publishInterval;
+
+    private Cache<String, VersionedBalance> cache;
+    // Highest balance_version announced by any instance, per user
+    private Cache<String, Long> announcedVersions;
+    // Versions committed here and not announced yet, newest per user
+    private final Map<String, Long> unpublished = new ConcurrentHashMap<>();
+    private ScheduledExecutorService publisher;
+    private Counter staleWrites;
+    private Counter remoteInvalidations;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        announcedVersions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "wallet_balances");
+        staleWrites = meterRegistry.counter("wallet.balance.cache.stale_writes");
+        remoteInvalidations = meterRegistry.counter("wallet.balance.cache.remote_invalidations");
+
+        notifications.subscribe(CHANNEL, this::onBalanceChanged, this::clear);
+
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-cache-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleWithFixedDelay(this::publish,
+                publishInterval.toMillis(), publishInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdownNow();
+    }
+
+    // Earlier versions notified from a trigger on every wallet update, which serialized all
+    // balance commits on the notification queue lock
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropTrigger() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS wallets_balance_changed ON wallets");
+        jdbcTemplate.execute("DROP FUNCTION IF EXISTS notify_balance_changed()");
+    }
+
+    public VersionedBalance get(String userId) {
+        if (!notifications.isListening()) {
+            return null;
+        }
+        return cache.getIfPresent(userId);
+    }
+
+    // Keeps whichever of the cached and the offered balance is newer. The announced version
+    // is checked inside the compute, which onBalanceChanged serializes with per user.
+    public void offer(String userId, VersionedBalance balance) {
+        if (walletSlots.isSharded(userId) || !notifications.isListening()) {
+            return;
+        }
+        cache.asMap().compute(userId, (id, current) -> {
+            Long announced = announcedVersions.getIfPresent(id);
+            boolean outdated = announced != null && balance.version() < announced;
+            if (!outdated && (current == null || balance.version() > current.version())) {
+                return balance;
+            }
+            staleWrites.increment();
+            return current;
+        });
+    }
+
+    // Call in the transaction that changed these wallets, after the change. The balances are
+    // the ones its UPDATEs returned, so exactly what the commit publishes; they reach this
+    // cache and the other instances only once the commit has happened.
+    public void writeThroughAfterCommit(Collection<String> userIds) {
+        Map<String, VersionedBalance> changed = walletJdbcRepository.changedBalances();
+        Map<String, VersionedBalance> balances = new HashMap<>();
+        userIds.forEach(userId -> {
+            VersionedBalance balance = changed.get(userId);
+            if (balance != null) {
+                balances.put(userId, balance);
+            }
+        });
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(balances);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed(balances);
+            }
+        });
+    }
+
+    private void committed(Map<String, VersionedBalance> balances) {
+        balances.forEach((userId, balance) -> {
+            offer(userId, balance);
+            if (!walletSlots.isSharded(userId)) {
+                unpublished.merge(userId, balance.version(), Math::max);
+            }
+        });
+    }
+
+    // Payload is "userId:version[,userId:version...]"; runs on the publisher thread only
+    private void publish() {
+        if (unpublished.isEmpty()) {
+            return;
+        }
+        Map<String, Long> versions = new HashMap<>();
+        for (String userId : new ArrayList<>(unpublished.keySet())) {
+            Long version = unpublished.remove(userId);
+            if (version != null) {
+                versions.put(userId, version);
+            }
+        }
+
+        StringBuilder payload = new StringBuilder();
+        try {
+            for (Map.Entry<String, Long> entry : versions.entrySet()) {
+                String item = entry.getKey() + ":" + entry.getValue();
+                if (payload.length() + item.length() + 1 > MAX_PAYLOAD) {
+                    announce(payload.toString());
+                    payload.setLength(0);
+                }
+                if (!payload.isEmpty()) {
+                    payload.append(',');
+                }
+                payload.append(item);
+            }
+            if (!payload.isEmpty()) {
+                announce(payload.toString());
+            }
+        } catch (DataAccessException e) {
+            // Sent again with the next round; chunks that already went out are harmless twice
+            versions.forEach((userId, version) -> unpublished.merge(userId, version, Math::max));
+            log.warn("Could not announce {} balance changes: {}", versions.size(), e.getMessage());
+        }
+    }
+
+    // Outside any transaction, so the notification queue lock is held only for this statement
+    private void announce(String payload) {
+        notifications.send(CHANNEL, payload);
+    }
+
+    private void onBalanceChanged(String payload) {
+        for (String item : payload.split(",")) {
+            int separator = item.lastIndexOf(':');
+            String userId = item.substring(0, separator);
+            long version = Long.parseLong(item.substring(separator + 1));
+
+            announcedVersions.asMap().merge(userId, version, Math::max);
+            cache.asMap().computeIfPresent(userId, (id, cached) -> {
+                if (cached.version() < version) {
+                    remoteInvalidations.increment();
+                    return null;
+                }
+                return cached;
+            });
+        }
+    }
+
+    // Notifications may have been missed while disconnected
+    private void clear() {
+        cache.invalidateAll();
+        announcedVersions.invalidateAll();
+    }
+}
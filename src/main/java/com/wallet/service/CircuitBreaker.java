@@ -0,0 +1,63 @@
+package com.wallet.service;
+
+// Consecutive-failure circuit breaker. After failure-threshold failures in a row the circuit
+// opens and calls fail fast; once open-duration has passed a single trial call is let
+// through, and its outcome either closes the circuit or opens it again.
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    // False if the call must not be made
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
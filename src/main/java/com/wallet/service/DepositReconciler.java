@@ -0,0 +1,211 @@
+package com.wallet.service;
+
+import com.wallet.dtos.paystack.VerifyTransactionData;
+import com.wallet.entity.Transaction;
+import com.wallet.exception.BadRequestException;
+import com.wallet.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Settles deposits whose webhook never arrived by asking Paystack for their status.
+// Each run walks stale PENDING deposits in keyset order, continuing where the previous run
+// stopped, and verifies them in parallel under a concurrency cap and a calls-per-second limit.
+// With several instances only the one holding the "deposit-reconciler" scheduler lock runs a
+// round; the keyset cursor lives in whichever instance that is, so a handover restarts from
+// the oldest stale deposit, which is only a repeated check, never a repeated settlement.
+@Component
+@ConditionalOnProperty(name = "app.wallet.deposit.reconciler.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class DepositReconciler {
+
+    private static final LocalDateTime START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int PAGE_SIZE = 100;
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final PaystackClient paystackClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final SchedulerLocks schedulerLocks;
+
+    @Value("${app.wallet.deposit.reconciler.min-age:15m}")
+    private Duration minAge;
+
+    @Value("${app.wallet.deposit.reconciler.abandon-after:24h}")
+    private Duration abandonAfter;
+
+    @Value("${app.wallet.deposit.reconciler.max-per-run:500}")
+    private int maxPerRun;
+
+    @Value("${app.wallet.deposit.reconciler.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.wallet.deposit.reconciler.rate-per-second:10}")
+    private int ratePerSecond;
+
+    // Longest a crashed instance can keep the others from reconciling
+    @Value("${app.wallet.deposit.reconciler.lock-at-most-for:30m}")
+    private Duration lockAtMostFor;
+
+    // Keeps instances with offset schedules from running back to back
+    @Value("${app.wallet.deposit.reconciler.lock-at-least-for:1m}")
+    private Duration lockAtLeastFor;
+
+    private ExecutorService executor;
+    private Counter checked;
+    private Counter confirmed;
+    private Counter failed;
+    private Counter errors;
+    private Timer lag;
+    private Timer runs;
+
+    // Keyset position of the last deposit checked; only touched by the scheduler thread
+    private LocalDateTime cursorCreatedAt = START;
+    private String cursorId = "";
+
+    @PostConstruct
+    public void init() {
+        // Partial index: covers only the handful of PENDING deposits, not the whole ledger.
+        // JPA @Index cannot express the predicate, so it is created here.
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_transactions_pending_deposits " +
+                "ON transactions (created_at, id) WHERE status = 'PENDING' AND type = 'DEPOSIT'");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "deposit-reconciler-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        checked = Counter.builder("deposit.reconciler.checked").register(meterRegistry);
+        confirmed = Counter.builder("deposit.reconciler.confirmed").register(meterRegistry);
+        failed = Counter.builder("deposit.reconciler.failed").register(meterRegistry);
+        errors = Counter.builder("deposit.reconciler.errors").register(meterRegistry);
+        lag = Timer.builder("deposit.reconciler.lag")
+                .description("Age of deposits confirmed by the reconciler instead of a webhook")
+                .register(meterRegistry);
+        runs = Timer.builder("deposit.reconciler.run").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.deposit.reconciler.interval-ms:300000}",
+            initialDelayString = "${app.wallet.deposit.reconciler.interval-ms:300000}")
+    public void reconcile() {
+        schedulerLocks.runLocked("deposit-reconciler", lockAtMostFor, lockAtLeastFor, () -> runs.record(this::run));
+    }
+
+    private void run() {
+        LocalDateTime before = LocalDateTime.now().minus(minAge);
+        Semaphore inFlight = new Semaphore(concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(ratePerSecond, 1);
+        long nextSlot = System.nanoTime();
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+
+        try {
+            while (calls.size() < maxPerRun) {
+                List<Transaction> page = transactionRepository.findStalePendingDeposits(
+                        before, cursorCreatedAt, cursorId,
+                        PageRequest.of(0, Math.min(PAGE_SIZE, maxPerRun - calls.size())));
+                if (page.isEmpty()) {
+                    // Reached the newest stale deposit; the next run starts from the oldest again
+                    cursorCreatedAt = START;
+                    cursorId = "";
+                    break;
+                }
+
+                for (Transaction deposit : page) {
+                    // Pace calls to ratePerSecond, and never more than concurrency at once
+                    long wait = nextSlot - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    nextSlot = Math.max(nextSlot, System.nanoTime()) + intervalNanos;
+                    inFlight.acquire();
+
+                    calls.add(CompletableFuture.runAsync(() -> verify(deposit), executor)
+                            .whenComplete((ignored, error) -> inFlight.release()));
+                }
+
+                Transaction last = page.get(page.size() - 1);
+                cursorCreatedAt = last.getCreatedAt();
+                cursorId = last.getId();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+        }
+
+        if (!calls.isEmpty()) {
+            log.info("Deposit reconciliation checked {} stale deposits", calls.size());
+        }
+    }
+
+    private void verify(Transaction deposit) {
+        checked.increment();
+        Duration age = Duration.between(deposit.getCreatedAt(), LocalDateTime.now());
+        try {
+            VerifyTransactionData data = paystackClient.verifyTransaction(deposit.getReference());
+
+            switch (data.getStatus()) {
+                case "success" -> {
+                    BigDecimal amount = BigDecimal.valueOf(data.getAmount())
+                            .divide(BigDecimal.valueOf(100));
+                    transactionService.markDepositSuccessful(deposit, amount);
+                    confirmed.increment();
+                    lag.record(age);
+                    log.info("Reconciled deposit {} as successful, Amount={}", deposit.getReference(), amount);
+                }
+                case "failed", "reversed" -> markFailed(deposit);
+                default -> {
+                    // abandoned/ongoing/pending: the customer may still pay, until abandon-after
+                    if (age.compareTo(abandonAfter) > 0) {
+                        markFailed(deposit);
+                    }
+                }
+            }
+        } catch (BadRequestException e) {
+            // Paystack does not know the reference, e.g. initialization never went through
+            if (age.compareTo(abandonAfter) > 0) {
+                markFailed(deposit);
+            }
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.warn("Could not reconcile deposit {}: {}", deposit.getReference(), e.getMessage());
+        }
+    }
+
+    private void markFailed(Transaction deposit) {
+        transactionService.markDepositFailed(deposit.getReference());
+        failed.increment();
+        log.info("Reconciled deposit {} as failed", deposit.getReference());
+    }
+}
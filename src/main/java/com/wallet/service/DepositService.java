@@ -0,0 +1,60 @@
+package com.wallet.service;
+
+import com.wallet.dtos.response.DepositResponse;
+import com.wallet.entity.User;
+import com.wallet.exception.PaystackUnavailableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DepositService {
+
+    private final PaystackService paystackService;
+    private final TransactionService transactionService;
+    private final ThreadPoolTaskExecutor depositExecutor;
+
+    // The pending transaction is written while Paystack initializes the payment; we choose
+    // the reference and Paystack echoes it back, so neither step waits for the other
+    public CompletableFuture<DepositResponse> initializeDeposit(User user, BigDecimal amount) {
+        String reference = paystackService.generateReference();
+
+        CompletableFuture<Void> pending;
+        try {
+            pending = CompletableFuture.runAsync(
+                    () -> transactionService.createPendingDeposit(user, amount, reference),
+                    depositExecutor);
+        } catch (TaskRejectedException e) {
+            throw new PaystackUnavailableException("Too many deposits in progress, try again shortly", e);
+        }
+
+        CompletableFuture<DepositResponse> initialized;
+        try {
+            initialized = CompletableFuture.supplyAsync(
+                    () -> paystackService.initializeTransaction(user.getEmail(), amount, reference),
+                    depositExecutor);
+        } catch (TaskRejectedException e) {
+            // The pending transaction is still written, but Paystack never sees this reference
+            pending.thenRun(() -> transactionService.markDepositFailed(reference));
+            throw new PaystackUnavailableException("Too many deposits in progress, try again shortly", e);
+        }
+
+        return pending.thenCombine(initialized, (ignored, response) -> response)
+                .whenComplete((response, error) -> {
+                    if (error == null) {
+                        log.info("Deposit initialized: User={}, Amount={}, Reference={}",
+                                user.getId(), amount, reference);
+                    } else if (!pending.isCompletedExceptionally()) {
+                        // Paystack never issued a payment for this reference
+                        transactionService.markDepositFailed(reference);
+                    }
+                });
+    }
+}
@@ -0,0 +1,221 @@
+package com.wallet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wallet.enums.IdempotencyStatus;
+import com.wallet.repository.IdempotencyJdbcRepository;
+import com.wallet.repository.IdempotencyJdbcRepository.StoredKey;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Idempotency keys and their stored responses. Completed keys are served from an in-memory
+// cache in front of the idempotency_keys table; a duplicate that arrives while the first
+// request is still running waits for it, on a local future when both hit this instance and
+// by polling the table when the first one runs elsewhere.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyStore {
+
+    private final IdempotencyJdbcRepository idempotencyJdbcRepository;
+    private final MeterRegistry meterRegistry;
+
+    // How long a key and its response are kept
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    // After this an unfinished request no longer holds its key
+    @Value("${app.idempotency.lock-timeout:30s}")
+    private Duration lockTimeout;
+
+    // How long a duplicate waits for the first request before getting a 409
+    @Value("${app.idempotency.wait-timeout:10s}")
+    private Duration waitTimeout;
+
+    @Value("${app.idempotency.poll-interval:100ms}")
+    private Duration pollInterval;
+
+    @Value("${app.idempotency.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${app.idempotency.cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    private Cache<String, StoredKey> completed;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public enum Decision {
+        PROCEED,
+        REPLAY,
+        MISMATCH,
+        IN_PROGRESS
+    }
+
+    // stored is set for REPLAY only, ownerToken for PROCEED only
+    public record Outcome(Decision decision, StoredKey stored, String ownerToken) {
+    }
+
+    private record InFlight(String ownerToken, long startedAt, CompletableFuture<StoredKey> result) {
+    }
+
+    @PostConstruct
+    public void init() {
+        completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl.compareTo(ttl) < 0 ? cacheTtl : ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency_keys");
+    }
+
+    // PROCEED hands the key to the caller, who must end with complete() or release() and the
+    // owner token it was given
+    public Outcome begin(String key, String userId, String requestHash) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            StoredKey hit = completed.getIfPresent(key);
+            if (hit != null) {
+                return replay(hit, requestHash);
+            }
+
+            InFlight mine = new InFlight(UUID.randomUUID().toString(), System.nanoTime(), new CompletableFuture<>());
+            InFlight running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                // A request that never finished (client gone, async dispatch lost) gives up its slot
+                if (System.nanoTime() - running.startedAt() > lockTimeout.toNanos()) {
+                    inFlight.remove(key, running);
+                    continue;
+                }
+                StoredKey done = await(running.result(), deadline);
+                if (done != null) {
+                    return replay(done, requestHash);
+                }
+                if (System.nanoTime() >= deadline) {
+                    return record(new Outcome(Decision.IN_PROGRESS, null, null));
+                }
+                continue;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            if (idempotencyJdbcRepository.claim(key, mine.ownerToken(), userId, requestHash, now,
+                    now.plus(lockTimeout), now.plus(ttl))) {
+                return record(new Outcome(Decision.PROCEED, null, mine.ownerToken()));
+            }
+
+            // The key is held in the table: finished earlier, or running on another instance
+            Optional<StoredKey> row = idempotencyJdbcRepository.find(key, now);
+            if (row.isPresent() && row.get().status() == IdempotencyStatus.COMPLETED) {
+                completed.put(key, row.get());
+                inFlight.remove(key, mine);
+                mine.result().complete(row.get());
+                return replay(row.get(), requestHash);
+            }
+            inFlight.remove(key, mine);
+            mine.result().complete(null);
+
+            if (row.isPresent() && !row.get().requestHash().equals(requestHash)) {
+                return record(new Outcome(Decision.MISMATCH, null, null));
+            }
+            if (System.nanoTime() >= deadline) {
+                return record(new Outcome(Decision.IN_PROGRESS, null, null));
+            }
+            sleep(pollInterval);
+        }
+    }
+
+    public void complete(String key, String ownerToken, String requestHash, int responseStatus,
+                         String contentType, byte[] responseBody) {
+        StoredKey stored = new StoredKey(
+                requestHash, IdempotencyStatus.COMPLETED, responseStatus, contentType, responseBody);
+        boolean owned = false;
+        try {
+            owned = idempotencyJdbcRepository.complete(key, ownerToken, responseStatus, contentType, responseBody);
+            if (owned) {
+                completed.put(key, stored);
+            } else {
+                // Ran past lock-timeout and the key was taken over; the new owner's response counts
+                log.warn("Idempotency key {} was taken over before its request finished", key);
+            }
+        } finally {
+            finish(key, ownerToken, owned ? stored : null);
+        }
+    }
+
+    // The request produced nothing worth replaying (5xx, exception); the next attempt runs again
+    public void release(String key, String ownerToken) {
+        try {
+            idempotencyJdbcRepository.release(key, ownerToken);
+        } finally {
+            finish(key, ownerToken, null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        int deleted = idempotencyJdbcRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    // Leaves the slot alone if a later request has taken the key over locally
+    private void finish(String key, String ownerToken, StoredKey stored) {
+        InFlight running = inFlight.get(key);
+        if (running != null && running.ownerToken().equals(ownerToken) && inFlight.remove(key, running)) {
+            running.result().complete(stored);
+        }
+    }
+
+    private Outcome replay(StoredKey stored, String requestHash) {
+        // A key reused with a different body is a client bug, never a replay
+        if (!stored.requestHash().equals(requestHash)) {
+            return record(new Outcome(Decision.MISMATCH, null, null));
+        }
+        return record(new Outcome(Decision.REPLAY, stored, null));
+    }
+
+    private Outcome record(Outcome outcome) {
+        meterRegistry.counter("idempotency.requests",
+                "outcome", outcome.decision().name().toLowerCase()).increment();
+        return outcome;
+    }
+
+    // Null when the first request was released or is still running at the deadline
+    private static StoredKey await(CompletableFuture<StoredKey> result, long deadline) {
+        try {
+            return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for idempotent request", e);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for idempotent request", e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.wallet.service;
+
+import com.wallet.dtos.paystack.InitializeTransactionData;
+import com.wallet.dtos.paystack.InitializeTransactionRequest;
+import com.wallet.dtos.paystack.PaystackResponse;
+import com.wallet.dtos.paystack.VerifyTransactionData;
+import com.wallet.exception.BadRequestException;
+import com.wallet.exception.PaystackUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Typed Paystack API calls behind a bulkhead and a circuit breaker, so a slow or failing
+// Paystack costs callers at most acquire-timeout + read-timeout instead of a blocked thread
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaystackClient {
+
+    private static final ParameterizedTypeReference<PaystackResponse<InitializeTransactionData>> INITIALIZE_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<PaystackResponse<VerifyTransactionData>> VERIFY_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestTemplate paystackRestTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.paystack.secret-key}")
+    private String secretKey;
+
+    @Value("${app.paystack.client.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
+
+    @Value("${app.paystack.client.acquire-timeout:100ms}")
+    private Duration acquireTimeout;
+
+    @Value("${app.paystack.client.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.paystack.client.open-duration:30s}")
+    private Duration openDuration;
+
+    private Semaphore bulkhead;
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    public void init() {
+        bulkhead = new Semaphore(maxConcurrentCalls);
+        circuitBreaker = new CircuitBreaker(failureThreshold, openDuration.toNanos());
+
+        Gauge.builder("paystack.client.in_flight", bulkhead,
+                        permits -> maxConcurrentCalls - permits.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("paystack.client.circuit.open", circuitBreaker,
+                        breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+    }
+
+    public InitializeTransactionData initializeTransaction(InitializeTransactionRequest request) {
+        PaystackResponse<InitializeTransactionData> response = call(() -> paystackRestTemplate.exchange(
+                "/transaction/initialize", HttpMethod.POST, new HttpEntity<>(request, headers()),
+                INITIALIZE_RESPONSE
+        ).getBody());
+
+        if (response == null || !response.isStatus() || response.getData() == null) {
+            throw new BadRequestException("Paystack rejected the transaction: "
+                    + (response == null ? "empty response" : response.getMessage()));
+        }
+        return response.getData();
+    }
+
+    public VerifyTransactionData verifyTransaction(String reference) {
+        PaystackResponse<VerifyTransactionData> response = call(() -> paystackRestTemplate.exchange(
+                "/transaction/verify/{reference}", HttpMethod.GET, new HttpEntity<>(headers()),
+                VERIFY_RESPONSE, reference
+        ).getBody());
+
+        if (response == null || !response.isStatus() || response.getData() == null) {
+            throw new BadRequestException("Paystack could not verify " + reference);
+        }
+        return response.getData();
+    }
+
+    private <T> T call(Supplier<T> request) {
+        boolean permitted;
+        try {
+            permitted = bulkhead.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaystackUnavailableException("Interrupted while waiting for Paystack", e);
+        }
+        if (!permitted) {
+            throw new PaystackUnavailableException("Too many concurrent Paystack calls, try again shortly");
+        }
+
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new PaystackUnavailableException("Paystack is unavailable, try again shortly");
+            }
+
+            T result;
+            try {
+                result = request.get();
+            } catch (HttpClientErrorException e) {
+                // Paystack answered; a rejected request says nothing about its health
+                circuitBreaker.onSuccess();
+                throw new BadRequestException("Paystack rejected the request: " + e.getStatusText(), e);
+            } catch (RestClientException e) {
+                // Connect/read timeouts, I/O errors, 5xx and unreadable bodies
+                circuitBreaker.onFailure();
+                log.error("Paystack call failed: {}", e.getMessage());
+                throw new PaystackUnavailableException("Paystack service error", e);
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            }
+            circuitBreaker.onSuccess();
+            return result;
+
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(secretKey);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+}
@@ -1,135 +1,98 @@
 package com.wallet.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.dtos.paystack.InitializeTransactionData;
+import com.wallet.dtos.paystack.InitializeTransactionRequest;
 import com.wallet.dtos.response.DepositResponse;
+import com.wallet.entity.TimeOrderedIdGenerator;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.UUID;
+import java.util.HexFormat;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaystackService {
 
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final PaystackClient paystackClient;
 
-    @Value("${app.paystack.secret-key}")
-    private String secretKey;
-
-    @Value("${app.paystack.base-url}")
-    private String baseUrl;
+    private static final int SIGNATURE_HEX_LENGTH = 128;
 
     @Value("${app.paystack.webhook-secret}")
     private String webhookSecret;
 
-    public DepositResponse initializeTransaction(String email, BigDecimal amount, String reference) {
-        String url = baseUrl + "/transaction/initialize";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + secretKey);
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    // Mac is not thread-safe; one keyed instance per thread avoids a lookup and init per webhook
+    private ThreadLocal<Mac> webhookMac;
 
-        String requestBody = String.format(
-                "{\"email\": \"%s\", \"amount\": \"%s\", \"reference\": \"%s\"}",
-                email,
-                amount.multiply(BigDecimal.valueOf(100)).intValue(), // Convert to kobo
-                reference
+    @Timed(value = "paystack.call", extraTags = {"operation", "initialize"})
+    public DepositResponse initializeTransaction(String email, BigDecimal amount, String reference) {
+        InitializeTransactionData data = paystackClient.initializeTransaction(
+                InitializeTransactionRequest.builder()
+                        .email(email)
+                        .amount(String.valueOf(amount.movePointRight(2).longValue())) // Convert to kobo
+                        .reference(reference)
+                        .build()
         );
 
-        HttpEntity<String> request = new HttpEntity<>(requestBody, headers);
-
-        try {
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
-
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                boolean status = root.get("status").asBoolean();
-
-                if (status) {
-                    JsonNode data = root.get("data");
-                    String authUrl = data.get("authorization_url").asText();
-                    String ref = data.get("reference").asText();
-
-                    return DepositResponse.builder()
-                            .reference(ref)
-                            .authorizationUrl(authUrl)
-                            .build();
-                }
-            }
-
-            throw new RuntimeException("Failed to initialize Paystack transaction");
-
-        } catch (Exception e) {
-            log.error("Paystack initialization failed: {}", e.getMessage());
-            throw new RuntimeException("Paystack service error", e);
-        }
+        return DepositResponse.builder()
+                .reference(data.getReference())
+                .authorizationUrl(data.getAuthorizationUrl())
+                .build();
     }
 
+    @Timed(value = "paystack.call", extraTags = {"operation", "verify"})
     public boolean verifyTransaction(String reference) {
-        String url = baseUrl + "/transaction/verify/" + reference;
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + secretKey);
-
-        HttpEntity<String> request = new HttpEntity<>(headers);
-
         try {
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url, HttpMethod.GET, request, String.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                boolean status = root.get("status").asBoolean();
-
-                if (status) {
-                    JsonNode data = root.get("data");
-                    String txStatus = data.get("status").asText();
-                    return "success".equals(txStatus);
-                }
-            }
-
-            return false;
-
-        } catch (Exception e) {
+            return "success".equals(paystackClient.verifyTransaction(reference).getStatus());
+        } catch (RuntimeException e) {
             log.error("Paystack verification failed: {}", e.getMessage());
             return false;
         }
     }
 
-    public boolean verifyWebhookSignature(String payload, String signature) {
-        try {
-            Mac sha512_HMAC = Mac.getInstance("HmacSHA512");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(
-                    webhookSecret.getBytes(), "HmacSHA512"
-            );
-            sha512_HMAC.init(secretKeySpec);
-
-            byte[] hash = sha512_HMAC.doFinal(payload.getBytes());
-            String calculatedSignature = Base64.getEncoder().encodeToString(hash);
+    @PostConstruct
+    public void init() {
+        SecretKeySpec key = new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
+        webhookMac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA512");
+                mac.init(key);
+                return mac;
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalStateException("Cannot initialize webhook HMAC", e);
+            }
+        });
+    }
 
-            return calculatedSignature.equals(signature);
+    // Paystack sends the hex HMAC-SHA512 of the raw body; doFinal resets the Mac for reuse
+    public boolean verifyWebhookSignature(byte[] payload, String signature) {
+        if (signature == null || signature.length() != SIGNATURE_HEX_LENGTH) {
+            return false;
+        }
 
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            log.error("Webhook signature verification failed: {}", e.getMessage());
+        byte[] expected;
+        try {
+            expected = HexFormat.of().parseHex(signature);
+        } catch (IllegalArgumentException e) {
             return false;
         }
+
+        return MessageDigest.isEqual(webhookMac.get().doFinal(payload), expected);
     }
 
+    // Time-ordered, so new references append to idx_reference instead of splitting random pages
     public String generateReference() {
-        return "tx_" + UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        return "tx_" + TimeOrderedIdGenerator.nextId().replace("-", "");
     }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.wallet.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.entity.Transaction;
+import com.wallet.enums.TransactionStatus;
+import com.wallet.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+// Applies one verified Paystack webhook payload; called by the inbox workers
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaystackWebhookProcessor {
+
+    private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private record ChargeEvent(String event, String reference, Long amount) {
+    }
+
+    // Throws IllegalArgumentException/JsonProcessingException for payloads that can never succeed
+    public void process(String payload) throws IOException {
+        ChargeEvent charge = parse(payload);
+        if (charge.event() == null) {
+            throw new IllegalArgumentException("Webhook payload has no event");
+        }
+
+        if (!"charge.success".equals(charge.event())) {
+            log.info("Ignoring non-success event: {}", charge.event());
+            countOutcome("ignored");
+            return;
+        }
+
+        if (charge.reference() == null || charge.amount() == null) {
+            throw new IllegalArgumentException("charge.success payload has no reference or amount");
+        }
+        String reference = charge.reference();
+
+        BigDecimal amount = BigDecimal.valueOf(charge.amount())
+                .divide(BigDecimal.valueOf(100));
+
+        // Retrieve the internal transaction using our "reference"
+        Transaction tx;
+        try {
+            tx = transactionService.getTransactionByReference(reference);
+        } catch (ResourceNotFoundException e) {
+            log.error("Unknown reference received from Paystack: {}", reference);
+            countOutcome("unknown_reference");
+            return;
+        }
+
+        // Idempotency check
+        if (tx.getStatus() == TransactionStatus.SUCCESS) {
+            log.info("Transaction already processed: {}", reference);
+            countOutcome("duplicate");
+            return;
+        }
+
+        // Mark transaction successful and credit wallet via service
+        transactionService.markDepositSuccessful(tx, amount);
+
+        log.info("Paystack webhook processed successfully: {}, Amount={}", reference, amount);
+        countOutcome("processed");
+    }
+
+    // webhook.events{outcome}; the controller and inbox add invalid_signature and duplicate
+    private void countOutcome(String outcome) {
+        meterRegistry.counter("webhook.events", "outcome", outcome).increment();
+    }
+
+    // Streams over the payload picking out event, data.reference and data.amount; the
+    // rest of Paystack's (large) data object is skipped without building a tree
+    private ChargeEvent parse(String payload) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Webhook payload is not a JSON object");
+            }
+
+            String event = null;
+            String reference = null;
+            Long amount = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("event".equals(field)) {
+                    event = parser.getValueAsString();
+                } else if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String dataField = parser.currentName();
+                        parser.nextToken();
+                        if ("reference".equals(dataField)) {
+                            reference = parser.getValueAsString();
+                        } else if ("amount".equals(dataField)) {
+                            amount = parser.getValueAsLong();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new ChargeEvent(event, reference, amount);
+        }
+    }
+}
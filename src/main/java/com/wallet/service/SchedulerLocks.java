@@ -0,0 +1,41 @@
+package com.wallet.service;
+
+import com.wallet.repository.SchedulerLockJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Keeps a scheduled job to one instance per run when several instances share the database.
+// The lock is a lease: an instance that dies mid-run holds it until lockAtMostFor has passed.
+// After a run the lock is kept until lockAtLeastFor from its start, so instances whose
+// schedules are slightly offset skip that round instead of repeating the work right away.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLocks {
+
+    private final SchedulerLockJdbcRepository schedulerLockJdbcRepository;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    // False if another instance holds the lock and the task was skipped
+    public boolean runLocked(String name, Duration lockAtMostFor, Duration lockAtLeastFor, Runnable task) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        if (!schedulerLockJdbcRepository.tryLock(name, owner, startedAt, startedAt.plus(lockAtMostFor))) {
+            log.debug("Skipping {}, another instance holds its lock", name);
+            return false;
+        }
+        try {
+            task.run();
+        } finally {
+            LocalDateTime earliest = startedAt.plus(lockAtLeastFor);
+            LocalDateTime now = LocalDateTime.now();
+            schedulerLockJdbcRepository.unlock(name, owner, now.isAfter(earliest) ? now : earliest);
+        }
+        return true;
+    }
+}
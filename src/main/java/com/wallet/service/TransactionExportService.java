@@ -0,0 +1,136 @@
+package com.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.dtos.TransactionDto;
+import com.wallet.entity.JournalEntry;
+import com.wallet.entity.Transaction;
+import com.wallet.entity.User;
+import com.wallet.enums.ExportFormat;
+import com.wallet.repository.JournalEntryRepository;
+import com.wallet.repository.TransactionRepository;
+import com.wallet.service.TransactionService.HistoryItem;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionExportService {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // Rows between persistence context clears, keeping memory flat for any history size
+    private static final int CLEAR_INTERVAL = 1000;
+
+    private static final String CSV_HEADER = "reference,type,amount,status,created_at," +
+            "sender_wallet_number,receiver_wallet_number\n";
+
+    private final TransactionRepository transactionRepository;
+    private final JournalEntryRepository journalEntryRepository;
+    private final TransactionService transactionService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    // The stream needs an open transaction: Postgres only uses a server-side cursor
+    // (honouring the fetch size) when autocommit is off
+    @Transactional(readOnly = true)
+    public void export(User user, ExportFormat format, LocalDateTime from, LocalDateTime to,
+                       OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+
+        LocalDateTime lower = from != null ? from : EARLIEST;
+        LocalDateTime upper = to != null ? to : LATEST;
+        String userId = user.getId();
+
+        long count = 0;
+        try (Stream<Transaction> transactions = transactionRepository.streamByUserBetween(user, lower, upper);
+             Stream<JournalEntry> debits = journalEntryRepository.streamByDebitUserBetween(userId, lower, upper);
+             Stream<JournalEntry> credits = journalEntryRepository.streamByCreditUserBetween(userId, lower, upper)) {
+
+            // Three ordered cursors merged on (created_at, id), one row from each held at a time
+            List<Iterator<HistoryItem>> sources = List.of(
+                    transactions.map(transactionService::toHistoryItem).iterator(),
+                    debits.map(entry -> transactionService.toHistoryItem(entry, userId)).iterator(),
+                    credits.map(entry -> transactionService.toHistoryItem(entry, userId)).iterator()
+            );
+            HistoryItem[] heads = new HistoryItem[sources.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+            }
+
+            while (true) {
+                int oldest = -1;
+                for (int i = 0; i < heads.length; i++) {
+                    if (heads[i] != null && (oldest < 0
+                            || HistoryItem.OLDEST_FIRST.compare(heads[i], heads[oldest]) < 0)) {
+                        oldest = i;
+                    }
+                }
+                if (oldest < 0) {
+                    break;
+                }
+
+                TransactionDto dto = heads[oldest].dto();
+                Iterator<HistoryItem> source = sources.get(oldest);
+                heads[oldest] = source.hasNext() ? source.next() : null;
+
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, dto);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(dto));
+                    writer.write('\n');
+                }
+
+                if (++count % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.flush();
+        log.info("Transactions exported: User={}, Format={}, Rows={}", user.getId(), format, count);
+    }
+
+    private void writeCsv(Writer writer, TransactionDto dto) throws IOException {
+        writer.write(String.join(",",
+                csv(dto.getReference()),
+                csv(dto.getType()),
+                csv(dto.getAmount() != null ? dto.getAmount().toPlainString() : null),
+                csv(dto.getStatus()),
+                csv(dto.getCreatedAt()),
+                csv(dto.getSenderWalletNumber()),
+                csv(dto.getReceiverWalletNumber())
+        ));
+        writer.write('\n');
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
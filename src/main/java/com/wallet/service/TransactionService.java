@@ -1,20 +1,37 @@
 package com.wallet.service;
 
+import com.wallet.config.StatementBudget;
 import com.wallet.dtos.TransactionDto;
+import com.wallet.dtos.response.TransactionPageResponse;
+import com.wallet.entity.JournalEntry;
+import com.wallet.entity.TimeOrderedIdGenerator;
 import com.wallet.entity.Transaction;
 import com.wallet.entity.User;
-import com.wallet.entity.Wallet;
 import com.wallet.enums.TransactionStatus;
 import com.wallet.enums.TransactionType;
+import com.wallet.exception.BadRequestException;
 import com.wallet.exception.ResourceNotFoundException;
+import com.wallet.repository.JournalEntryRepository;
 import com.wallet.repository.TransactionRepository;
-import com.wallet.repository.WalletRepository;
+import com.wallet.repository.WalletJdbcRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,7 +42,16 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
 
-    private final WalletRepository walletRepository;
+    private final WalletJdbcRepository walletJdbcRepository;
+
+    private final JournalEntryRepository journalEntryRepository;
+
+    private final ObjectProvider<WalletLedger> walletLedger;
+
+    private final BalanceCache balanceCache;
+
+    @Value("${app.wallet.transactions.max-page-size:100}")
+    private int maxPageSize;
 
     // @Lazy
     // private final UserService userService;
@@ -46,18 +72,100 @@ public class TransactionService {
         return transactionRepository.save(transaction);
     }
 
+    // Builds a row already in its final state for the JDBC batch writers; nothing is persisted here
+    public Transaction newCompletedTransaction(User user, TransactionType type,
+                                               BigDecimal amount, String reference) {
+        LocalDateTime now = LocalDateTime.now();
+        return Transaction.builder()
+                .id(TimeOrderedIdGenerator.nextId())
+                .user(user)
+                .type(type)
+                .amount(amount)
+                .reference(reference)
+                .status(TransactionStatus.SUCCESS)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
     @Transactional
     public void createPendingDeposit(User user, BigDecimal amount, String reference) {
         createTransaction(user, TransactionType.DEPOSIT, amount, reference, reference);
     }
 
+    // For deposits whose Paystack initialization failed; a no-op once the deposit left PENDING
+    @Transactional
+    public void markDepositFailed(String reference) {
+        transactionRepository.markFailedIfPending(reference, LocalDateTime.now());
+    }
+
     @Transactional
     public void saveTransaction(Transaction transaction) {
         transactionRepository.save(transaction);
     }
 
-    public List<Transaction> getUserTransactions(User user) {
-        return transactionRepository.findByUserOrderByCreatedAtDesc(user);
+    // History merges transactions (deposits, pre-journal transfers) with the journal entries
+    // the user is either side of. Each of the three sources is read as its own keyset page
+    // of limit+1 rows and the pages are merged, so no source is ever scanned past the page.
+    @Transactional(readOnly = true)
+    public TransactionPageResponse getUserTransactions(User user, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        // One extra row tells us whether another page exists without counting
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        String userId = user.getId();
+
+        List<HistoryItem> rows = new ArrayList<>();
+        if (cursor == null || cursor.isBlank()) {
+            transactionRepository.findFirstPage(user, pageable)
+                    .forEach(t -> rows.add(toHistoryItem(t)));
+            journalEntryRepository.findFirstDebitPage(userId, pageable)
+                    .forEach(e -> rows.add(toHistoryItem(e, userId)));
+            journalEntryRepository.findFirstCreditPage(userId, pageable)
+                    .forEach(e -> rows.add(toHistoryItem(e, userId)));
+        } else {
+            String[] position = decodeCursor(cursor);
+            LocalDateTime createdAt = LocalDateTime.parse(position[0]);
+            transactionRepository.findPageBefore(user, createdAt, position[1], pageable)
+                    .forEach(t -> rows.add(toHistoryItem(t)));
+            journalEntryRepository.findDebitPageBefore(userId, createdAt, position[1], pageable)
+                    .forEach(e -> rows.add(toHistoryItem(e, userId)));
+            journalEntryRepository.findCreditPageBefore(userId, createdAt, position[1], pageable)
+                    .forEach(e -> rows.add(toHistoryItem(e, userId)));
+        }
+        rows.sort(HistoryItem.NEWEST_FIRST);
+
+        List<HistoryItem> page = rows;
+        String next = null;
+        if (rows.size() > pageSize) {
+            page = rows.subList(0, pageSize);
+            HistoryItem last = page.get(pageSize - 1);
+            next = encodeCursor(last.createdAt(), last.id());
+        }
+
+        return TransactionPageResponse.builder()
+                .transactions(page.stream().map(HistoryItem::dto).toList())
+                .next(next)
+                .build();
+    }
+
+    private String encodeCursor(LocalDateTime createdAt, String id) {
+        String position = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|", 2);
+            if (parts.length != 2 || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Missing id");
+            }
+            LocalDateTime.parse(parts[0]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
     }
 
     public Transaction getTransactionByReference(String reference) {
@@ -73,6 +181,8 @@ public class TransactionService {
 //        return userService.findByWalletNumber(walletNumber);
 //    }
 
+    // Status update and credit; two more when the wallet row is missing
+    @StatementBudget(4)
     @Transactional
     public void markDepositSuccessful(Transaction transaction, BigDecimal amount) {
         if (transaction.getStatus() == TransactionStatus.SUCCESS) {
@@ -80,28 +190,69 @@ public class TransactionService {
             return; // idempotency
         }
 
-        // Mark transaction successful first
+        // Mark transaction successful first; the conditional update makes concurrent
+        // deliveries of the same webhook credit the wallet only once
+        LocalDateTime now = LocalDateTime.now();
+        if (transactionRepository.markSuccessful(transaction.getId(), now) == 0) {
+            log.info("Transaction {} already marked successful", transaction.getReference());
+            return;
+        }
         transaction.setStatus(TransactionStatus.SUCCESS);
-        transactionRepository.save(transaction);
 
         // Credit user's wallet directly to avoid circular dependency
         User user = transaction.getUser();
-        Wallet wallet = walletRepository.findByUser(user)
-                .orElseGet(() -> walletRepository.save(
-                        Wallet.builder()
-                                .user(user)
-                                .balance(BigDecimal.ZERO)
-                                .currency("NGN")
-                                .isActive(true)
-                                .build()
-                ));
+        walletJdbcRepository.creditCreatingWallet(user.getId(), amount, now);
+        balanceCache.writeThroughAfterCommit(List.of(user.getId()));
+
+        // Balances held by the ledger are now stale for this user
+        walletLedger.ifAvailable(ledger -> TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        ledger.invalidate(user.getId());
+                    }
+                }
+        ));
+    }
+
+
+
+    // Builds a transfer entry in its final state for the writers; nothing is persisted here
+    public JournalEntry newTransferEntry(User sender, String receiverId, String receiverWalletNumber,
+                                         BigDecimal amount, String reference) {
+        return JournalEntry.builder()
+                .id(TimeOrderedIdGenerator.nextId())
+                .reference(reference)
+                .amount(amount)
+                .debitUserId(sender.getId())
+                .debitWalletNumber(sender.getWalletNumber())
+                .creditUserId(receiverId)
+                .creditWalletNumber(receiverWalletNumber)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
 
-        wallet.setBalance(wallet.getBalance().add(amount));
-        wallet.setLastTransactionAt(java.time.LocalDateTime.now());
-        walletRepository.save(wallet);
+    public HistoryItem toHistoryItem(Transaction transaction) {
+        return new HistoryItem(transaction.getCreatedAt(), transaction.getId(), toDto(transaction));
     }
 
+    public HistoryItem toHistoryItem(JournalEntry entry, String userId) {
+        return new HistoryItem(entry.getCreatedAt(), entry.getId(), toDto(entry, userId));
+    }
 
+    // A journal entry as seen by one of its parties: negative for the sender, as transfer rows were
+    public TransactionDto toDto(JournalEntry entry, String userId) {
+        boolean debit = userId.equals(entry.getDebitUserId());
+        return TransactionDto.builder()
+                .reference(entry.getReference())
+                .type(TransactionType.TRANSFER)
+                .amount(debit ? entry.getAmount().negate() : entry.getAmount())
+                .status(TransactionStatus.SUCCESS)
+                .createdAt(entry.getCreatedAt())
+                .senderWalletNumber(entry.getDebitWalletNumber())
+                .receiverWalletNumber(entry.getCreditWalletNumber())
+                .build();
+    }
 
     public TransactionDto toDto(Transaction transaction) {
         return TransactionDto.builder()
@@ -114,4 +265,15 @@ public class TransactionService {
                 .receiverWalletNumber(transaction.getReceiverWalletNumber())
                 .build();
     }
-}
\ No newline at end of file
+
+    // A history row from either source, with the keyset position it sorts by
+    public record HistoryItem(LocalDateTime createdAt, String id, TransactionDto dto) {
+
+        public static final Comparator<HistoryItem> NEWEST_FIRST = Comparator
+                .comparing(HistoryItem::createdAt)
+                .thenComparing(HistoryItem::id)
+                .reversed();
+
+        public static final Comparator<HistoryItem> OLDEST_FIRST = NEWEST_FIRST.reversed();
+    }
+}
@@ -0,0 +1,279 @@
+package com.wallet.service;
+
+import com.wallet.config.StatementCounter;
+import com.wallet.entity.JournalEntry;
+import com.wallet.entity.User;
+import com.wallet.exception.InsufficientBalanceException;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.BalanceChange;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Group commit for transfers (app.wallet.transfer.group-commit.enabled). Callers queue their
+// transfer and block on a future; a single committer thread applies up to max-batch-size
+// queued transfers in one DB transaction, so many transfers share one commit.
+@Service
+@ConditionalOnProperty(name = "app.wallet.transfer.group-commit.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class TransferBatcher {
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final WalletSlots walletSlots;
+    private final BalanceCache balanceCache;
+    private final TransactionService transactionService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.wallet.transfer.group-commit.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${app.wallet.transfer.group-commit.max-linger-ms:5}")
+    private long maxLingerMs;
+
+    @Value("${app.wallet.transfer.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingTransfer> queue;
+    private Thread committer;
+    private DistributionSummary batchSizes;
+    private Timer queueWait;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchSizes = DistributionSummary.builder("wallet.transfer.batch.size")
+                .description("Transfers committed per group-commit batch")
+                .register(meterRegistry);
+        queueWait = Timer.builder("wallet.transfer.queue.wait")
+                .description("Time a transfer waits in the group-commit queue")
+                .register(meterRegistry);
+        Gauge.builder("wallet.transfer.queue.depth", queue, BlockingQueue::size)
+                .register(meterRegistry);
+
+        running = true;
+        committer = new Thread(this::run, "transfer-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The committer drains what is already queued before exiting
+        running = false;
+        committer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public JournalEntry transfer(User sender, String receiverId, String receiverWalletNumber,
+                                 BigDecimal amount, String reference) {
+        if (!running) {
+            throw new IllegalStateException("Transfer committer is shut down");
+        }
+
+        JournalEntry entry = transactionService.newTransferEntry(
+                sender, receiverId, receiverWalletNumber, amount, reference);
+
+        PendingTransfer transfer = new PendingTransfer(entry, System.nanoTime(), new CompletableFuture<>());
+
+        // Executed on the committer thread, out of sight of the caller's statement count
+        StatementCounter.markDelegated();
+        try {
+            queue.put(transfer);
+            return transfer.result().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing transfer", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<PendingTransfer> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Linger for more transfers until the batch is full or the deadline passes
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingTransfer next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                long startedAt = System.nanoTime();
+                batch.forEach(transfer ->
+                        queueWait.record(startedAt - transfer.enqueuedAt(), TimeUnit.NANOSECONDS));
+                batchSizes.record(batch.size());
+
+                commit(batch);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Transfer committer failed: {}", e.getMessage(), e);
+                batch.forEach(transfer -> transfer.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        boolean[] accepted;
+        try {
+            accepted = transactionTemplate.execute(status -> apply(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            // Nothing from the batch was committed; retry each transfer in its own
+            // transaction so the failure only reaches the transfer that caused it
+            log.warn("Transfer batch of {} failed, retrying individually: {}",
+                    batch.size(), e.getMessage());
+            batch.forEach(transfer -> commit(List.of(transfer)));
+            return;
+        }
+
+        // Callers are only answered once the batch has committed
+        for (int i = 0; i < batch.size(); i++) {
+            PendingTransfer transfer = batch.get(i);
+            if (accepted[i]) {
+                transfer.result().complete(transfer.entry());
+            } else {
+                transfer.result().completeExceptionally(
+                        new InsufficientBalanceException("Insufficient balance"));
+            }
+        }
+    }
+
+    // Differs from running the transfers one after another in one way: a debit that is short
+    // is retried in further passes while other transfers of the batch credit the sender, so
+    // A->B queued behind B->C still funds B. A transfer is only rejected once no accepted
+    // transfer in the batch can cover it any more.
+    private boolean[] apply(List<PendingTransfer> batch) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Every wallet row the batch writes is locked first, in id order, so committers on
+        // different instances queue on overlapping wallets instead of deadlocking. Sharded
+        // receivers get slot credits, except those also paying in this batch: their row is
+        // locked anyway, and credits there can fund their own debits in a later pass.
+        Set<String> locked = new HashSet<>();
+        batch.forEach(transfer -> {
+            locked.add(transfer.entry().getDebitUserId());
+            if (!walletSlots.isSharded(transfer.entry().getCreditUserId())) {
+                locked.add(transfer.entry().getCreditUserId());
+            }
+        });
+        walletJdbcRepository.lockWallets(locked);
+
+        boolean[] accepted = new boolean[batch.size()];
+        List<JournalEntry> entries = new ArrayList<>();
+        List<Integer> waiting = IntStream.range(0, batch.size()).boxed().toList();
+        boolean firstPass = true;
+        while (!waiting.isEmpty()) {
+            // Guarded debits run in queue order, so a sender with several transfers in the
+            // pass is charged exactly as if they had run one after another. Only the first
+            // pass sweeps sharded slots, before this transaction has credited any of them.
+            List<BalanceChange> debits = waiting.stream()
+                    .map(i -> batch.get(i).entry())
+                    .map(entry -> new BalanceChange(entry.getDebitUserId(), entry.getAmount()))
+                    .toList();
+            int[] debited = firstPass
+                    ? walletSlots.debitAll(debits, now)
+                    : walletJdbcRepository.debitAll(debits, now);
+            firstPass = false;
+
+            List<Integer> rejected = new ArrayList<>();
+            Map<String, BigDecimal> credits = new TreeMap<>();
+            for (int j = 0; j < waiting.size(); j++) {
+                int i = waiting.get(j);
+                if (debited[j] == 0) {
+                    rejected.add(i);
+                    continue;
+                }
+                JournalEntry entry = batch.get(i).entry();
+                accepted[i] = true;
+                entries.add(entry);
+                credits.merge(entry.getCreditUserId(), entry.getAmount(), BigDecimal::add);
+            }
+            if (credits.isEmpty()) {
+                break;
+            }
+            credit(credits, locked, now);
+            waiting = rejected;
+        }
+
+        if (!entries.isEmpty()) {
+            walletJdbcRepository.insertJournalEntries(entries);
+
+            Set<String> changed = new HashSet<>();
+            entries.forEach(entry -> {
+                changed.add(entry.getDebitUserId());
+                changed.add(entry.getCreditUserId());
+            });
+            balanceCache.writeThroughAfterCommit(changed);
+        }
+        return accepted;
+    }
+
+    // Credits in user id order; rows this batch has locked are credited directly
+    private void credit(Map<String, BigDecimal> credits, Set<String> locked, LocalDateTime now) {
+        List<BalanceChange> rowCredits = new ArrayList<>();
+        List<BalanceChange> slotCredits = new ArrayList<>();
+        credits.forEach((userId, amount) ->
+                (locked.contains(userId) ? rowCredits : slotCredits).add(new BalanceChange(userId, amount)));
+
+        int[] rowCounts = rowCredits.isEmpty() ? new int[0] : walletJdbcRepository.creditAll(rowCredits, now);
+        int[] slotCounts = slotCredits.isEmpty() ? new int[0] : walletSlots.creditAll(slotCredits, now);
+        if (IntStream.concat(IntStream.of(rowCounts), IntStream.of(slotCounts)).anyMatch(count -> count == 0)) {
+            throw new IllegalStateException("Wallet not found");
+        }
+    }
+
+    private record PendingTransfer(JournalEntry entry, long enqueuedAt,
+                                   CompletableFuture<JournalEntry> result) {
+    }
+}
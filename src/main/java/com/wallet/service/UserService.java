@@ -14,7 +14,6 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.security.SecureRandom;
 import java.util.Optional;
 
 @Service
@@ -24,6 +23,8 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
 
+    private final WalletNumberAllocator walletNumberAllocator;
+
     @Lazy
     private final WalletService walletService;
 
@@ -42,7 +43,7 @@ public class UserService implements UserDetailsService {
     }
 
     private User createUser(String googleId, String email, String name, String picture) {
-        String walletNumber = generateWalletNumber();
+        String walletNumber = walletNumberAllocator.next();
 
         User user = User.builder()
                 .googleId(googleId)
@@ -61,25 +62,6 @@ public class UserService implements UserDetailsService {
         return user;
     }
 
-    private String generateWalletNumber() {
-        SecureRandom random = new SecureRandom();
-        StringBuilder sb = new StringBuilder();
-
-        // Generate 13-digit wallet number
-        for (int i = 0; i < 13; i++) {
-            sb.append(random.nextInt(10));
-        }
-
-        String walletNumber = sb.toString();
-
-        // Ensure uniqueness
-        while (userRepository.existsByWalletNumber(walletNumber)) {
-            walletNumber = generateWalletNumber();
-        }
-
-        return walletNumber;
-    }
-
     public User findById(String userId) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
@@ -0,0 +1,396 @@
+package com.wallet.service;
+
+import com.wallet.config.StatementCounter;
+import com.wallet.entity.JournalEntry;
+import com.wallet.entity.Transaction;
+import com.wallet.entity.User;
+import com.wallet.enums.TransactionType;
+import com.wallet.exception.InsufficientBalanceException;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.BalanceChange;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// In-memory balance engine used instead of the JPA path when app.wallet.ledger.enabled is set.
+// Every wallet is owned by one stripe thread, which is the only writer of its balances, so
+// mutations need no locks. Each stripe drains its mailbox in batches and persists a batch in
+// one DB transaction; callers are only answered, and getBalance only sees the new balances,
+// once that transaction has committed.
+@Service
+@ConditionalOnProperty(name = "app.wallet.ledger.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class WalletLedger {
+
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final WalletSlots walletSlots;
+    private final TransactionService transactionService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.wallet.ledger.stripes:8}")
+    private int stripeCount;
+
+    @Value("${app.wallet.ledger.batch-size:256}")
+    private int batchSize;
+
+    @Value("${app.wallet.ledger.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.wallet.ledger.max-wallets-per-stripe:100000}")
+    private int maxWalletsPerStripe;
+
+    private Stripe[] stripes;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        stripes = new Stripe[stripeCount];
+        running = true;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(i);
+        }
+        for (Stripe stripe : stripes) {
+            stripe.thread.start();
+        }
+        log.info("Wallet ledger started with {} stripes", stripeCount);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Stripes finish what is already queued before exiting
+        running = false;
+        for (Stripe stripe : stripes) {
+            stripe.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public BigDecimal getBalance(String userId) {
+        Stripe stripe = stripeFor(userId);
+        BigDecimal balance = stripe.invalidations.isEmpty() ? stripe.balances.get(userId) : null;
+        if (balance != null) {
+            return balance;
+        }
+        return (BigDecimal) await(stripe.submit(new Command(
+                Kind.LOAD, userId, null, null, List.of(), null, new CompletableFuture<>()
+        )));
+    }
+
+    public Transaction deposit(User user, BigDecimal amount, String reference,
+                               String paystackReference) {
+        Transaction transaction = transactionService.newCompletedTransaction(
+                user, TransactionType.DEPOSIT, amount, reference);
+        transaction.setPaystackReference(paystackReference);
+
+        return (Transaction) await(stripeFor(user.getId()).submit(new Command(
+                Kind.CREDIT, user.getId(), null, amount, List.of(transaction), null, new CompletableFuture<>()
+        )));
+    }
+
+    public JournalEntry transfer(User sender, String receiverId, String receiverWalletNumber,
+                                 BigDecimal amount, String reference) {
+        JournalEntry entry = transactionService.newTransferEntry(
+                sender, receiverId, receiverWalletNumber, amount, reference);
+
+        return (JournalEntry) await(stripeFor(sender.getId()).submit(new Command(
+                Kind.TRANSFER, sender.getId(), receiverId, amount, List.of(), entry, new CompletableFuture<>()
+        )));
+    }
+
+    // Called after a wallet was changed outside the ledger (e.g. a committed webhook credit)
+    public void invalidate(String userId) {
+        stripeFor(userId).invalidations.add(userId);
+    }
+
+    private Stripe stripeFor(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private enum Kind {
+        LOAD,
+        CREDIT,
+        TRANSFER
+    }
+
+    // CREDIT carries its deposit transaction, TRANSFER its journal entry
+    private record Command(Kind kind, String userId, String counterpartyId, BigDecimal amount,
+                           List<Transaction> transactions, JournalEntry entry,
+                           CompletableFuture<Object> result) {
+    }
+
+    // Thrown inside the batch transaction when the database rejects a debit the memory allowed
+    private static class GuardFailureException extends RuntimeException {
+    }
+
+    private final class Stripe implements Runnable {
+
+        private final BlockingQueue<Command> mailbox = new ArrayBlockingQueue<>(queueCapacity);
+        // Committed balances. Written only by this stripe's thread; other threads may read them
+        private final Map<String, BigDecimal> balances = new ConcurrentHashMap<>();
+        // Net change per wallet of the batch being persisted, added to balances once it commits
+        private final Map<String, BigDecimal> pending = new HashMap<>();
+        private final Queue<String> invalidations = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+
+        private Stripe(int index) {
+            thread = new Thread(this, "wallet-ledger-" + index);
+            thread.setDaemon(true);
+        }
+
+        private CompletableFuture<Object> submit(Command command) {
+            if (!running) {
+                throw new IllegalStateException("Wallet ledger is shut down");
+            }
+            // Executed on the stripe thread, out of sight of the caller's statement count
+            StatementCounter.markDelegated();
+            try {
+                mailbox.put(command);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing wallet operation", e);
+            }
+            return command.result();
+        }
+
+        @Override
+        public void run() {
+            List<Command> batch = new ArrayList<>(batchSize);
+            while (running || !mailbox.isEmpty()) {
+                try {
+                    applyInvalidations();
+                    Command first = mailbox.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    mailbox.drainTo(batch, batchSize - 1);
+                    applyInvalidations();
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("Wallet ledger stripe failed: {}", e.getMessage(), e);
+                    batch.forEach(command -> command.result().completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void applyInvalidations() {
+            String userId;
+            while ((userId = invalidations.poll()) != null) {
+                balances.remove(userId);
+            }
+        }
+
+        private void process(List<Command> batch) {
+            List<Command> writes = new ArrayList<>();
+            for (Command command : batch) {
+                if (command.kind() == Kind.LOAD) {
+                    try {
+                        command.result().complete(committedBalanceOf(command.userId()));
+                    } catch (RuntimeException e) {
+                        command.result().completeExceptionally(e);
+                    }
+                } else if (apply(command)) {
+                    writes.add(command);
+                }
+            }
+
+            if (!writes.isEmpty()) {
+                persist(writes);
+            }
+        }
+
+        // Applies a mutation to the in-memory balances; false if it was rejected
+        private boolean apply(Command command) {
+            try {
+                BigDecimal balance = balanceOf(command.userId());
+
+                if (command.kind() == Kind.CREDIT) {
+                    pending.merge(command.userId(), command.amount(), BigDecimal::add);
+                    return true;
+                }
+
+                if (balance.compareTo(command.amount()) < 0) {
+                    // Credits committed by other stripes only invalidate, so re-read before rejecting
+                    balances.remove(command.userId());
+                    balance = balanceOf(command.userId());
+                    if (balance.compareTo(command.amount()) < 0) {
+                        command.result().completeExceptionally(
+                                new InsufficientBalanceException("Insufficient balance"));
+                        return false;
+                    }
+                }
+
+                pending.merge(command.userId(), command.amount().negate(), BigDecimal::add);
+                if (stripeFor(command.counterpartyId()) == this) {
+                    pending.merge(command.counterpartyId(), command.amount(), BigDecimal::add);
+                }
+                return true;
+
+            } catch (RuntimeException e) {
+                command.result().completeExceptionally(e);
+                return false;
+            }
+        }
+
+        private void persist(List<Command> writes) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(writes));
+            } catch (RuntimeException e) {
+                // Nothing of the batch was published; drop what it touched so it is reloaded
+                pending.clear();
+                writes.forEach(command -> {
+                    balances.remove(command.userId());
+                    if (command.counterpartyId() != null) {
+                        balances.remove(command.counterpartyId());
+                    }
+                });
+
+                if (writes.size() > 1) {
+                    // Isolate the failure by committing each mutation on its own
+                    log.warn("Wallet ledger batch of {} failed, retrying individually: {}",
+                            writes.size(), e.getMessage());
+                    for (Command command : writes) {
+                        if (apply(command)) {
+                            persist(List.of(command));
+                        }
+                    }
+                    return;
+                }
+
+                writes.get(0).result().completeExceptionally(e instanceof GuardFailureException
+                        ? new InsufficientBalanceException("Insufficient balance")
+                        : e);
+                return;
+            }
+
+            // Wallets not held in memory are loaded from the database when next needed
+            pending.forEach((userId, change) ->
+                    balances.computeIfPresent(userId, (id, balance) -> balance.add(change)));
+            pending.clear();
+
+            for (Command command : writes) {
+                if (command.kind() == Kind.TRANSFER && stripeFor(command.counterpartyId()) != this) {
+                    stripeFor(command.counterpartyId()).invalidations.add(command.counterpartyId());
+                }
+                command.result().complete(command.kind() == Kind.TRANSFER
+                        ? command.entry()
+                        : command.transactions().get(0));
+            }
+            trim();
+        }
+
+        private void write(List<Command> writes) {
+            LocalDateTime now = LocalDateTime.now();
+            List<BalanceChange> debits = new ArrayList<>();
+            List<BalanceChange> credits = new ArrayList<>();
+            List<Transaction> transactions = new ArrayList<>();
+            List<JournalEntry> entries = new ArrayList<>();
+
+            for (Command command : writes) {
+                if (command.kind() == Kind.TRANSFER) {
+                    debits.add(new BalanceChange(command.userId(), command.amount()));
+                    credits.add(new BalanceChange(command.counterpartyId(), command.amount()));
+                    entries.add(command.entry());
+                } else {
+                    credits.add(new BalanceChange(command.userId(), command.amount()));
+                }
+                transactions.addAll(command.transactions());
+            }
+
+            // Credits of cross-stripe transfers write rows another stripe also writes, so every
+            // row is locked first in one global order, the one TransferBatcher and batch payouts
+            // use, instead of debits then credits. Sharded wallets only credited get a slot.
+            Set<String> locked = new HashSet<>();
+            debits.forEach(debit -> locked.add(debit.userId()));
+            credits.stream()
+                    .map(BalanceChange::userId)
+                    .filter(userId -> !walletSlots.isSharded(userId))
+                    .forEach(locked::add);
+            walletJdbcRepository.lockWallets(locked);
+
+            if (!debits.isEmpty()) {
+                for (int count : walletSlots.debitAll(debits, now)) {
+                    if (count == 0) {
+                        throw new GuardFailureException();
+                    }
+                }
+            }
+            for (int count : walletSlots.creditAll(credits, now)) {
+                if (count == 0) {
+                    throw new IllegalStateException("Wallet not found");
+                }
+            }
+            if (!transactions.isEmpty()) {
+                walletJdbcRepository.insertTransactions(transactions);
+            }
+            if (!entries.isEmpty()) {
+                walletJdbcRepository.insertJournalEntries(entries);
+            }
+        }
+
+        // Committed balance plus what the batch in progress has applied so far
+        private BigDecimal balanceOf(String userId) {
+            return committedBalanceOf(userId).add(pending.getOrDefault(userId, BigDecimal.ZERO));
+        }
+
+        private BigDecimal committedBalanceOf(String userId) {
+            BigDecimal balance = balances.get(userId);
+            if (balance == null) {
+                balance = walletJdbcRepository.findBalanceByUserId(userId).orElseGet(() -> {
+                    walletJdbcRepository.insertWalletIfAbsent(userId);
+                    return walletJdbcRepository.findBalanceByUserId(userId).orElse(BigDecimal.ZERO);
+                });
+                balances.put(userId, balance);
+            }
+            return balance;
+        }
+
+        private void trim() {
+            Iterator<String> iterator = balances.keySet().iterator();
+            while (balances.size() > maxWalletsPerStripe && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.wallet.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out 13-digit wallet numbers: a 12-digit body derived from a DB sequence plus a Luhn
+// check digit. Each nextval reserves a whole block of block-size values, which are then
+// handed out in memory without locks, so a signup costs no uniqueness query. Distinct
+// sequence values always give distinct numbers; the users.walletNumber unique constraint
+// is the only safety net (e.g. against numbers issued before this allocator existed).
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WalletNumberAllocator {
+
+    private static final long BODY_RANGE = 1_000_000_000_000L;
+    // Bijection on [0, 10^12): the multiplier is coprime with 10^12, so consecutive sequence
+    // values map to distinct, non-consecutive bodies and numbers do not reveal signup order
+    private static final long MULTIPLIER = 604_462_909_807L;
+    private static final long OFFSET = 271_828_182_845L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.wallet.number.block-size:1000}")
+    private int blockSize;
+
+    @Value("${app.wallet.number.validate-check-digit:false}")
+    private boolean validateCheckDigit;
+
+    private volatile Block current = new Block(0, 0);
+
+    private record Block(AtomicLong next, long end) {
+        private Block(long start, long end) {
+            this(new AtomicLong(start), end);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        // An existing sequence keeps its increment, so that is the block size actually used
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS wallet_number_seq START WITH 1 INCREMENT BY " + blockSize);
+        Integer increment = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = 'wallet_number_seq'", Integer.class);
+        if (increment != null && increment != blockSize) {
+            log.warn("wallet_number_seq increments by {}, using that as the block size instead of {}",
+                    increment, blockSize);
+            blockSize = increment;
+        }
+    }
+
+    public String next() {
+        while (true) {
+            Block block = current;
+            long value = block.next().getAndIncrement();
+            if (value < block.end()) {
+                return format(value);
+            }
+            refill(block);
+        }
+    }
+
+    // False for strings that cannot be a wallet number, so typos are rejected without a lookup
+    public boolean isValid(String walletNumber) {
+        if (walletNumber == null || walletNumber.length() != 13) {
+            return false;
+        }
+        for (int i = 0; i < walletNumber.length(); i++) {
+            if (!Character.isDigit(walletNumber.charAt(i))) {
+                return false;
+            }
+        }
+        return !validateCheckDigit
+                || checkDigit(walletNumber.substring(0, 12)) == walletNumber.charAt(12) - '0';
+    }
+
+    private synchronized void refill(Block exhausted) {
+        // Only the first thread to find the block exhausted reserves the next one
+        if (current == exhausted) {
+            Long start = jdbcTemplate.queryForObject("SELECT nextval('wallet_number_seq')", Long.class);
+            current = new Block(start, start + blockSize);
+        }
+    }
+
+    private static String format(long value) {
+        long body = (mulMod(value % BODY_RANGE, MULTIPLIER) + OFFSET) % BODY_RANGE;
+        String digits = String.format("%012d", body);
+        return digits + checkDigit(digits);
+    }
+
+    // (a * b) mod 10^12 without overflowing a long
+    private static long mulMod(long a, long b) {
+        return BigInteger.valueOf(a)
+                .multiply(BigInteger.valueOf(b))
+                .mod(BigInteger.valueOf(BODY_RANGE))
+                .longValue();
+    }
+
+    private static int checkDigit(String body) {
+        int sum = 0;
+        // Double every second digit starting from the rightmost digit of the body
+        for (int i = body.length() - 1, position = 0; i >= 0; i--, position++) {
+            int digit = body.charAt(i) - '0';
+            if (position % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -1,21 +1,50 @@
 package com.wallet.service;
 
+import com.wallet.config.StatementBudget;
+import com.wallet.config.StatementCounter;
+import com.wallet.dtos.request.TransferRequest;
 import com.wallet.dtos.response.BalanceResponse;
+import com.wallet.dtos.response.BatchTransferResponse;
+import com.wallet.dtos.response.BatchTransferResult;
+import com.wallet.entity.JournalEntry;
 import com.wallet.entity.Transaction;
 import com.wallet.entity.User;
 import com.wallet.entity.Wallet;
 import com.wallet.enums.TransactionStatus;
 import com.wallet.enums.TransactionType;
+import com.wallet.exception.BadRequestException;
 import com.wallet.exception.InsufficientBalanceException;
 import com.wallet.exception.ResourceNotFoundException;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.BalanceChange;
+import com.wallet.repository.WalletJdbcRepository.VersionedBalance;
 import com.wallet.repository.WalletRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -28,10 +57,39 @@ public class WalletService {
     @Lazy
     private final TransactionService transactionService;
 
+    private final WalletJdbcRepository walletJdbcRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectProvider<WalletLedger> walletLedger;
+
+    private final ObjectProvider<TransferBatcher> transferBatcher;
+
+    private final WalletNumberAllocator walletNumberAllocator;
+
+    private final WalletSlots walletSlots;
+
+    private final BalanceCache balanceCache;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.wallet.transfer.pessimistic-locking:true}")
+    private boolean pessimisticLocking;
+
+    @Value("${app.wallet.transfer.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${app.wallet.transfer.retry-backoff-ms:20}")
+    private long retryBackoffMs;
+
+    @Value("${app.wallet.payout.max-recipients:500}")
+    private int maxPayoutRecipients;
+
     @Transactional
     public Wallet createWallet(User user) {
         Wallet wallet = Wallet.builder()
                 .user(user)
+                .walletNumber(user.getWalletNumber())
                 .balance(BigDecimal.ZERO)
                 .currency("NGN")
                 .isActive(true)
@@ -45,111 +103,315 @@ public class WalletService {
                 .orElseGet(() -> createWallet(user));
     }
 
+    @Timed(value = "wallet.operation", extraTags = {"operation", "balance"})
     public BalanceResponse getBalance(User user) {
-        Wallet wallet = getWalletByUser(user);
-        return BalanceResponse.builder()
-                .balance(wallet.getBalance())
-                .currency(wallet.getCurrency())
-                .build();
+        WalletLedger ledger = walletLedger.getIfAvailable();
+        if (ledger != null) {
+            return BalanceResponse.builder()
+                    .balance(ledger.getBalance(user.getId()))
+                    .currency("NGN")
+                    .build();
+        }
+
+        VersionedBalance cached = balanceCache.get(user.getId());
+        if (cached != null) {
+            return BalanceResponse.builder()
+                    .balance(cached.balance())
+                    .currency(cached.currency())
+                    .build();
+        }
+
+        // Read-only, so a miss is served by the read replica when one is configured; a
+        // transaction is only opened here, so cache hits never take a connection
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            // Sharded wallets are never cached; wallet row and slots are summed in one statement
+            if (walletSlots.isSharded(user.getId())) {
+                return walletJdbcRepository.findBalanceByUserId(user.getId())
+                        .map(balance -> BalanceResponse.builder().balance(balance).currency("NGN").build())
+                        .orElseThrow(() -> new ResourceNotFoundException("Wallet not found"));
+            }
+            // Wallets are created at signup; one that is still missing is created on the
+            // primary, outside this read-only transaction
+            Wallet wallet = walletRepository.findByUser(user).orElseGet(() -> {
+                TransactionTemplate writable = new TransactionTemplate(transactionTemplate.getTransactionManager());
+                writable.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                return writable.execute(inner -> createWallet(user));
+            });
+            balanceCache.offer(user.getId(), new VersionedBalance(
+                    wallet.getBalance(), wallet.getCurrency(), wallet.getBalanceVersion()));
+            return BalanceResponse.builder()
+                    .balance(wallet.getBalance())
+                    .currency(wallet.getCurrency())
+                    .build();
+        });
     }
 
-    @Transactional
+    // Credit and transaction insert; two more when the wallet row is missing
+    @StatementBudget(4)
+    @Timed(value = "wallet.operation", extraTags = {"operation", "deposit"})
     public Transaction deposit(User user, BigDecimal amount, String reference,
                                String paystackReference) {
-        Wallet wallet = getWalletByUser(user);
+        WalletLedger ledger = walletLedger.getIfAvailable();
+        if (ledger != null) {
+            return ledger.deposit(user, amount, reference, paystackReference);
+        }
+        return transactionTemplate.execute(status ->
+                doDeposit(user, amount, reference, paystackReference));
+    }
 
-        Transaction transaction = transactionService.createTransaction(
-                user,
-                TransactionType.DEPOSIT,
-                amount,
-                reference,
-                paystackReference
-        );
+    private Transaction doDeposit(User user, BigDecimal amount, String reference,
+                                  String paystackReference) {
+        // Update wallet balance
+        walletJdbcRepository.creditCreatingWallet(user.getId(), amount, LocalDateTime.now());
 
-        try {
-            // Update wallet balance
-            wallet.setBalance(wallet.getBalance().add(amount));
-            wallet.setLastTransactionAt(java.time.LocalDateTime.now());
-            walletRepository.save(wallet);
+        // The transaction row is inserted once, already successful; a failure above rolls
+        // the whole deposit back, so there is no PENDING or FAILED state to write first
+        Transaction transaction = transactionService.newCompletedTransaction(
+                user, TransactionType.DEPOSIT, amount, reference);
+        transaction.setPaystackReference(paystackReference);
+        walletJdbcRepository.insertTransactions(List.of(transaction));
+        balanceCache.writeThroughAfterCommit(List.of(user.getId()));
 
-            // Update transaction status
-            transaction.setStatus(TransactionStatus.SUCCESS);
-            transactionService.saveTransaction(transaction);
+        log.info("Deposit successful: User={}, Amount={}, Reference={}",
+                user.getId(), amount, reference);
 
-            log.info("Deposit successful: User={}, Amount={}, Reference={}",
-                    user.getId(), amount, reference);
+        return transaction;
+    }
 
-        } catch (Exception e) {
-            transaction.setStatus(TransactionStatus.FAILED);
-            transactionService.saveTransaction(transaction);
-            throw e;
+    // Lock, debit, credit, journal insert
+    @StatementBudget(4)
+    @Timed(value = "wallet.operation", extraTags = {"operation", "transfer"})
+    public JournalEntry transfer(User sender, String receiverWalletNumber,
+                                 BigDecimal amount, String reference) {
+        if (!walletNumberAllocator.isValid(receiverWalletNumber)) {
+            throw new BadRequestException("Invalid wallet number");
+        }
+        if (receiverWalletNumber.equals(sender.getWalletNumber())) {
+            throw new BadRequestException("Cannot transfer to your own wallet");
         }
 
-        return transaction;
+        WalletLedger ledger = walletLedger.getIfAvailable();
+        if (ledger != null) {
+            return ledger.transfer(sender, findReceiverId(receiverWalletNumber),
+                    receiverWalletNumber, amount, reference);
+        }
+
+        TransferBatcher batcher = transferBatcher.getIfAvailable();
+        if (batcher != null) {
+            return batcher.transfer(sender, findReceiverId(receiverWalletNumber),
+                    receiverWalletNumber, amount, reference);
+        }
+
+        return inTransactionWithRetry(reference, () ->
+                doTransfer(sender, receiverWalletNumber, amount, reference));
     }
 
-    @Transactional
-    public Transaction transfer(User sender, String receiverWalletNumber,
-                                BigDecimal amount, String reference) {
-        // Check if sender has sufficient balance
-        Wallet senderWallet = getWalletByUser(sender);
-        if (senderWallet.getBalance().compareTo(amount) < 0) {
+    public BatchTransferResponse batchTransfer(User sender, List<TransferRequest> transfers,
+                                               String reference) {
+        // Validate the whole batch before any database work
+        if (transfers.size() > maxPayoutRecipients) {
+            throw new BadRequestException(
+                    String.format("Maximum %d recipients allowed per batch", maxPayoutRecipients)
+            );
+        }
+        transfers.stream()
+                .map(TransferRequest::getWalletNumber)
+                .filter(walletNumber -> !walletNumberAllocator.isValid(walletNumber))
+                .findFirst()
+                .ifPresent(walletNumber -> {
+                    throw new BadRequestException("Invalid wallet number: " + walletNumber);
+                });
+        if (transfers.stream().anyMatch(transfer ->
+                transfer.getWalletNumber().equals(sender.getWalletNumber()))) {
+            throw new BadRequestException("Cannot transfer to your own wallet");
+        }
+        BigDecimal total = transfers.stream()
+                .map(TransferRequest::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        List<BatchTransferResult> results = inTransactionWithRetry(reference, () ->
+                doBatchTransfer(sender, transfers, total, reference));
+
+        log.info("Batch transfer successful: From={}, Recipients={}, Total={}, Reference={}",
+                sender.getId(), transfers.size(), total, reference);
+
+        return BatchTransferResponse.builder()
+                .reference(reference)
+                .totalAmount(total)
+                .results(results)
+                .build();
+    }
+
+    private List<BatchTransferResult> doBatchTransfer(User sender, List<TransferRequest> transfers,
+                                                      BigDecimal total, String reference) {
+        // Resolve every receiver in one query
+        Set<String> walletNumbers = transfers.stream()
+                .map(TransferRequest::getWalletNumber)
+                .collect(Collectors.toSet());
+        Map<String, User> receivers = walletRepository.findByWalletNumberIn(walletNumbers).stream()
+                .collect(Collectors.toMap(Wallet::getWalletNumber, Wallet::getUser));
+
+        List<String> unknown = walletNumbers.stream()
+                .filter(walletNumber -> !receivers.containsKey(walletNumber))
+                .sorted()
+                .toList();
+        if (!unknown.isEmpty()) {
+            throw new ResourceNotFoundException("Wallet not found: " + String.join(", ", unknown));
+        }
+
+        // Lock the sender and every receiver whose wallet row is credited up front, in id order,
+        // so batches with overlapping wallets cannot deadlock; sharded receivers get a slot instead
+        if (pessimisticLocking) {
+            Set<String> locked = new HashSet<>();
+            locked.add(sender.getId());
+            receivers.values().stream()
+                    .map(User::getId)
+                    .filter(receiverId -> !walletSlots.isSharded(receiverId))
+                    .forEach(locked::add);
+            walletJdbcRepository.lockWallets(locked);
+        }
+
+        // Debit the sender once for the whole batch
+        LocalDateTime now = LocalDateTime.now();
+        if (!debit(sender.getId(), total, now)) {
+            throw new InsufficientBalanceException("Insufficient balance");
+        }
+
+        // One credit per receiver, amounts of repeated receivers summed, in user id order
+        Map<String, BigDecimal> creditsByReceiver = new TreeMap<>();
+        List<JournalEntry> entries = new ArrayList<>(transfers.size());
+        List<BatchTransferResult> results = new ArrayList<>(transfers.size());
+
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            User receiver = receivers.get(transfer.getWalletNumber());
+            String itemReference = reference + "_" + (i + 1);
+
+            creditsByReceiver.merge(receiver.getId(), transfer.getAmount(), BigDecimal::add);
+            entries.add(transactionService.newTransferEntry(
+                    sender, receiver.getId(), transfer.getWalletNumber(), transfer.getAmount(), itemReference));
+
+            results.add(BatchTransferResult.builder()
+                    .walletNumber(transfer.getWalletNumber())
+                    .amount(transfer.getAmount())
+                    .reference(itemReference)
+                    .status(TransactionStatus.SUCCESS)
+                    .build());
+        }
+
+        walletSlots.creditAll(creditsByReceiver.entrySet().stream()
+                .map(credit -> new BalanceChange(credit.getKey(), credit.getValue()))
+                .toList(), now);
+        walletJdbcRepository.insertJournalEntries(entries);
+
+        List<String> changed = new ArrayList<>();
+        changed.add(sender.getId());
+        receivers.values().forEach(receiver -> changed.add(receiver.getId()));
+        balanceCache.writeThroughAfterCommit(changed);
+
+        // The batch bypassed the ledger, so drop whatever it holds for these wallets
+        walletLedger.ifAvailable(ledger -> TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        ledger.invalidate(sender.getId());
+                        receivers.values().forEach(receiver -> ledger.invalidate(receiver.getId()));
+                    }
+                }
+        ));
+
+        return results;
+    }
+
+    private <T> T inTransactionWithRetry(String reference, Supplier<T> work) {
+        int attempt = 0;
+        while (true) {
+            long attemptStart = StatementCounter.current();
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException e) {
+                // Deadlock, lock timeout or serialization failure: the whole
+                // transaction was rolled back, so it is safe to run it again
+                if (++attempt > maxRetries) {
+                    throw e;
+                }
+                StatementCounter.markRetried(StatementCounter.current() - attemptStart);
+                log.warn("Transfer {} hit a lock conflict, retrying ({}/{}): {}",
+                        reference, attempt, maxRetries, e.getMessage());
+                meterRegistry.counter("wallet.transfer.retries").increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private JournalEntry doTransfer(User sender, String receiverWalletNumber,
+                                    BigDecimal amount, String reference) {
+        // Find receiver; a sharded receiver is credited on a slot row, so its wallet row is not locked
+        String receiverId = walletSlots.shardedUserId(receiverWalletNumber);
+        if (receiverId == null && pessimisticLocking) {
+            receiverId = walletRepository.lockForTransfer(sender.getId(), receiverWalletNumber)
+                    .stream()
+                    .filter(wallet -> receiverWalletNumber.equals(wallet.getWalletNumber()))
+                    .map(wallet -> wallet.getUser().getId())
+                    .findFirst()
+                    .orElseThrow(() -> new ResourceNotFoundException("Wallet not found"));
+        } else if (receiverId == null) {
+            receiverId = walletRepository.findUserIdByWalletNumber(receiverWalletNumber)
+                    .orElseThrow(() -> new ResourceNotFoundException("Wallet not found"));
+        }
+
+        // Deduct from sender; the balance check is part of the UPDATE so two
+        // concurrent transfers can never both pass it
+        LocalDateTime now = LocalDateTime.now();
+        if (!debit(sender.getId(), amount, now)) {
             throw new InsufficientBalanceException("Insufficient balance");
         }
 
-        // Find receiver
-        Wallet receiverWallet = walletRepository.findByWalletNumber(receiverWalletNumber)
+        // Add to receiver
+        if (walletSlots.isSharded(receiverId)) {
+            walletSlots.creditAll(List.of(new BalanceChange(receiverId, amount)), now);
+        } else {
+            walletJdbcRepository.creditAll(List.of(new BalanceChange(receiverId, amount)), now);
+        }
+        balanceCache.writeThroughAfterCommit(List.of(sender.getId(), receiverId));
+
+        // Record both postings as one journal entry, inserted once in its final state
+        JournalEntry entry = transactionService.newTransferEntry(
+                sender, receiverId, receiverWalletNumber, amount, reference);
+        walletJdbcRepository.insertJournalEntries(List.of(entry));
+
+        log.info("Transfer successful: From={}, To={}, Amount={}, Reference={}",
+                sender.getId(), receiverId, amount, reference);
+
+        return entry;
+    }
+
+    // Guarded debit of the wallet row; a sharded wallet that looks short has its slots swept
+    // into the row and is tried once more
+    private boolean debit(String userId, BigDecimal amount, LocalDateTime now) {
+        List<BalanceChange> debit = List.of(new BalanceChange(userId, amount));
+        if (walletJdbcRepository.debitAll(debit, now)[0] != 0) {
+            return true;
+        }
+        return walletSlots.sweepIfSharded(userId, now)
+                && walletJdbcRepository.debitAll(debit, now)[0] != 0;
+    }
+
+    private String findReceiverId(String receiverWalletNumber) {
+        return walletRepository.findUserIdByWalletNumber(receiverWalletNumber)
                 .orElseThrow(() -> new ResourceNotFoundException("Wallet not found"));
-        User receiver = receiverWallet.getUser();
-
-
-        // Create transaction records
-        Transaction senderTransaction = transactionService.createTransaction(
-                sender,
-                TransactionType.TRANSFER,
-                amount.negate(),
-                reference,
-                null
-        );
-        senderTransaction.setReceiverWalletNumber(receiverWalletNumber);
-
-        Transaction receiverTransaction = transactionService.createTransaction(
-                receiver,
-                TransactionType.TRANSFER,
-                amount,
-                reference + "_R",
-                null
-        );
-        receiverTransaction.setSenderWalletNumber(sender.getWalletNumber());
+    }
 
+    private void backoff(int attempt) {
+        long delay = retryBackoffMs * (1L << (attempt - 1));
         try {
-            // Deduct from sender
-            senderWallet.setBalance(senderWallet.getBalance().subtract(amount));
-            senderWallet.setLastTransactionAt(java.time.LocalDateTime.now());
-            walletRepository.save(senderWallet);
-
-            // Add to receiver
-            receiverWallet.setBalance(receiverWallet.getBalance().add(amount));
-            receiverWallet.setLastTransactionAt(java.time.LocalDateTime.now());
-            walletRepository.save(receiverWallet);
-
-            // Update transaction statuses
-            senderTransaction.setStatus(TransactionStatus.SUCCESS);
-            receiverTransaction.setStatus(TransactionStatus.SUCCESS);
-            transactionService.saveTransaction(senderTransaction);
-            transactionService.saveTransaction(receiverTransaction);
-
-            log.info("Transfer successful: From={}, To={}, Amount={}, Reference={}",
-                    sender.getId(), receiver.getId(), amount, reference);
-
-        } catch (Exception e) {
-            senderTransaction.setStatus(TransactionStatus.FAILED);
-            receiverTransaction.setStatus(TransactionStatus.FAILED);
-            transactionService.saveTransaction(senderTransaction);
-            transactionService.saveTransaction(receiverTransaction);
-            throw e;
-        }
-
-        return senderTransaction;
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying transfer", e);
+        }
     }
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,188 @@
+package com.wallet.service;
+
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.BalanceChange;
+import com.wallet.repository.WalletSlotJdbcRepository;
+import com.wallet.repository.WalletSlotJdbcRepository.ShardedWallet;
+import com.wallet.repository.WalletSlotJdbcRepository.SlotCredit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Sharded balances for high fan-in wallets (app.wallet.sharding.wallets). Credits to such a
+// wallet land on one of its wallet_balance_slots rows picked at random per transaction, so
+// concurrent payers do not queue on the single wallets row. The balance is the wallet row plus all its slots;
+// debits use the wallet row and sweep the slots into it when that is short, and a background
+// job sweeps regularly so the wallet row stays close to the full balance.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletSlots {
+
+    private final WalletSlotJdbcRepository walletSlotJdbcRepository;
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Comma-separated wallet numbers
+    @Value("${app.wallet.sharding.wallets:}")
+    private String configuredWallets;
+
+    @Value("${app.wallet.sharding.slots:16}")
+    private int slots;
+
+    private volatile Map<String, ShardedWallet> byUserId = Map.of();
+    private volatile Map<String, ShardedWallet> byWalletNumber = Map.of();
+
+    // After startup, so the schema is in place; the configuration decides which wallets are sharded
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        Set<String> walletNumbers = Arrays.stream(configuredWallets.split(","))
+                .map(String::trim)
+                .filter(walletNumber -> !walletNumber.isEmpty())
+                .collect(Collectors.toSet());
+
+        walletNumbers.forEach(walletNumber -> walletSlotJdbcRepository.enable(walletNumber, slots));
+        for (ShardedWallet wallet : walletSlotJdbcRepository.findShardedWallets()) {
+            if (!walletNumbers.contains(wallet.walletNumber())) {
+                // Credits stop going to the slots, so empty them onto the wallet row right away
+                transactionTemplate.executeWithoutResult(status -> {
+                    walletSlotJdbcRepository.sweep(wallet.userId(), LocalDateTime.now());
+                    walletSlotJdbcRepository.disable(wallet.userId());
+                });
+            }
+        }
+        reload();
+        log.info("Sharded balances enabled for {} wallets", byUserId.size());
+    }
+
+    public boolean isSharded(String userId) {
+        return byUserId.containsKey(userId);
+    }
+
+    // The owner of walletNumber if that wallet is sharded, else null; answered from memory
+    public String shardedUserId(String walletNumber) {
+        ShardedWallet wallet = byWalletNumber.get(walletNumber);
+        return wallet == null ? null : wallet.userId();
+    }
+
+    // Drop-in for WalletJdbcRepository.creditAll that sends credits to sharded wallets to a slot.
+    // A transaction credits one slot per sharded wallet, with that wallet's amounts summed, and
+    // takes the slots in (user id, slot) order, so concurrent payouts cannot deadlock on slots.
+    public int[] creditAll(List<BalanceChange> credits, LocalDateTime now) {
+        Map<String, ShardedWallet> sharded = byUserId;
+        if (sharded.isEmpty() || credits.stream().noneMatch(c -> sharded.containsKey(c.userId()))) {
+            return walletJdbcRepository.creditAll(credits, now);
+        }
+
+        List<BalanceChange> walletCredits = new ArrayList<>();
+        Map<String, BigDecimal> slotTotals = new TreeMap<>();
+        for (BalanceChange credit : credits) {
+            if (sharded.containsKey(credit.userId())) {
+                slotTotals.merge(credit.userId(), credit.amount(), BigDecimal::add);
+            } else {
+                walletCredits.add(credit);
+            }
+        }
+        List<String> slotUserIds = new ArrayList<>(slotTotals.keySet());
+        List<SlotCredit> slotCredits = slotUserIds.stream()
+                .map(userId -> new SlotCredit(userId, slotFor(sharded.get(userId)), slotTotals.get(userId)))
+                .toList();
+
+        int[] walletCounts = walletCredits.isEmpty()
+                ? new int[0] : walletJdbcRepository.creditAll(walletCredits, now);
+        int[] slotCounts = walletSlotJdbcRepository.creditAll(slotCredits, now);
+
+        // Results in the order of the input, like creditAll
+        int[] counts = new int[credits.size()];
+        for (int i = 0, w = 0; i < credits.size(); i++) {
+            String userId = credits.get(i).userId();
+            counts[i] = sharded.containsKey(userId)
+                    ? slotCounts[slotUserIds.indexOf(userId)] : walletCounts[w++];
+        }
+        return counts;
+    }
+
+    // The same slot for every credit to this wallet within the current transaction
+    @SuppressWarnings("unchecked")
+    private int slotFor(ShardedWallet wallet) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return ThreadLocalRandom.current().nextInt(wallet.slots());
+        }
+        Map<String, Integer> chosen = (Map<String, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (chosen == null) {
+            chosen = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, chosen);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(WalletSlots.this);
+                }
+            });
+        }
+        return chosen.computeIfAbsent(wallet.userId(),
+                userId -> ThreadLocalRandom.current().nextInt(wallet.slots()));
+    }
+
+    // Drop-in for WalletJdbcRepository.debitAll; a sharded wallet that looks short is swept
+    // and its debit tried once more before it counts as insufficient
+    public int[] debitAll(List<BalanceChange> debits, LocalDateTime now) {
+        int[] counts = walletJdbcRepository.debitAll(debits, now);
+        for (int i = 0; i < counts.length; i++) {
+            BalanceChange debit = debits.get(i);
+            if (counts[i] == 0 && sweepIfSharded(debit.userId(), now)) {
+                counts[i] = walletJdbcRepository.debitAll(List.of(debit), now)[0];
+            }
+        }
+        return counts;
+    }
+
+    // Must run in the caller's transaction; true if the wallet is sharded and was swept
+    public boolean sweepIfSharded(String userId, LocalDateTime now) {
+        if (!isSharded(userId)) {
+            return false;
+        }
+        walletSlotJdbcRepository.sweep(userId, now);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.sharding.rebalance-interval-ms:10000}")
+    public void rebalance() {
+        for (String userId : walletSlotJdbcRepository.findUserIdsWithSlotBalance()) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        walletSlotJdbcRepository.sweep(userId, LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                log.warn("Could not sweep balance slots of {}: {}", userId, e.getMessage());
+            }
+        }
+        reload();
+    }
+
+    private void reload() {
+        List<ShardedWallet> wallets = walletSlotJdbcRepository.findShardedWallets();
+        byUserId = wallets.stream()
+                .collect(Collectors.toUnmodifiableMap(ShardedWallet::userId, Function.identity()));
+        byWalletNumber = wallets.stream()
+                .collect(Collectors.toUnmodifiableMap(ShardedWallet::walletNumber, Function.identity()));
+    }
+}
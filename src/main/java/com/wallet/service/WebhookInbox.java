@@ -0,0 +1,221 @@
+package com.wallet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.wallet.enums.WebhookStatus;
+import com.wallet.repository.WebhookInboxJdbcRepository;
+import com.wallet.repository.WebhookInboxJdbcRepository.ClaimedWebhook;
+import com.wallet.repository.WebhookInboxJdbcRepository.FailedWebhook;
+import com.wallet.repository.WebhookInboxJdbcRepository.InboxStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Durable hand-off between the webhook endpoint and the wallet credit. The endpoint only
+// inserts the verified payload; a worker pool drains due entries in batches, retrying
+// failures with exponential backoff until they are dead-lettered.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookInbox {
+
+    private final WebhookInboxJdbcRepository webhookInboxJdbcRepository;
+    private final PaystackWebhookProcessor paystackWebhookProcessor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.paystack.webhook-inbox.workers:4}")
+    private int workers;
+
+    @Value("${app.paystack.webhook-inbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.paystack.webhook-inbox.lease:60s}")
+    private Duration lease;
+
+    @Value("${app.paystack.webhook-inbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.paystack.webhook-inbox.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${app.paystack.webhook-inbox.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    @Value("${app.paystack.webhook-inbox.retention:7d}")
+    private Duration retention;
+
+    private ExecutorService executor;
+    private Timer lag;
+    private Counter processed;
+    private Counter retried;
+    private Counter deadLettered;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicReference<LocalDateTime> oldestPending = new AtomicReference<>();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // Each drain waits for its batch, so the queue never holds more than one batch
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "webhook-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        // End-to-end webhook time; percentiles are set under management.metrics.distribution
+        lag = Timer.builder("webhook.inbox.lag")
+                .description("Time from webhook receipt until it was applied")
+                .register(meterRegistry);
+        processed = Counter.builder("webhook.inbox.processed").register(meterRegistry);
+        retried = Counter.builder("webhook.inbox.retried").register(meterRegistry);
+        deadLettered = Counter.builder("webhook.inbox.dead_lettered").register(meterRegistry);
+        Gauge.builder("webhook.inbox.depth", depth, AtomicLong::get)
+                .description("Webhooks waiting to be applied")
+                .register(meterRegistry);
+        Gauge.builder("webhook.inbox.oldest.age.seconds", oldestPending, ref -> {
+                    LocalDateTime oldest = ref.get();
+                    return oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toSeconds();
+                })
+                .description("Age of the oldest webhook waiting to be applied")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Unfinished entries are leased in the database and picked up again after restart
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // One insert; a redelivery of an already stored payload is accepted and ignored
+    public void enqueue(byte[] payload) {
+        if (!webhookInboxJdbcRepository.insert(
+                sha256(payload), new String(payload, StandardCharsets.UTF_8), LocalDateTime.now())) {
+            log.info("Duplicate Paystack webhook ignored");
+            meterRegistry.counter("webhook.events", "outcome", "duplicate").increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.paystack.webhook-inbox.poll-interval-ms:200}")
+    public void drain() {
+        List<ClaimedWebhook> batch;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            batch = webhookInboxJdbcRepository.claim(batchSize, now, now.plus(lease));
+            if (!batch.isEmpty()) {
+                processBatch(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.paystack.webhook-inbox.stats-interval-ms:10000}")
+    public void refreshStats() {
+        InboxStats stats = webhookInboxJdbcRepository.stats();
+        depth.set(stats.depth());
+        oldestPending.set(stats.oldestReceivedAt());
+    }
+
+    @Scheduled(fixedDelayString = "${app.paystack.webhook-inbox.purge-interval-ms:3600000}")
+    public void purge() {
+        int deleted = webhookInboxJdbcRepository.deleteProcessedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} processed webhooks", deleted);
+        }
+    }
+
+    private void processBatch(List<ClaimedWebhook> batch) {
+        List<CompletableFuture<Throwable>> outcomes = batch.stream()
+                .map(webhook -> CompletableFuture.supplyAsync(() -> apply(webhook), executor))
+                .toList();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> succeeded = new ArrayList<>();
+        List<FailedWebhook> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ClaimedWebhook webhook = batch.get(i);
+            Throwable error = outcomes.get(i).join();
+            if (error == null) {
+                succeeded.add(webhook.id());
+                processed.increment();
+                lag.record(Duration.between(webhook.receivedAt(), now));
+            } else {
+                failed.add(failure(webhook, error, now));
+            }
+        }
+
+        if (!succeeded.isEmpty()) {
+            webhookInboxJdbcRepository.markProcessed(succeeded, now);
+        }
+        if (!failed.isEmpty()) {
+            webhookInboxJdbcRepository.markFailed(failed);
+        }
+    }
+
+    private Throwable apply(ClaimedWebhook webhook) {
+        try {
+            paystackWebhookProcessor.process(webhook.payload());
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private FailedWebhook failure(ClaimedWebhook webhook, Throwable error, LocalDateTime now) {
+        // Malformed payloads will never succeed, so they skip the retries
+        boolean permanent = error instanceof JsonProcessingException
+                || error instanceof IllegalArgumentException;
+
+        if (permanent || webhook.attempts() >= maxAttempts) {
+            deadLettered.increment();
+            log.error("Webhook {} dead-lettered after {} attempts: {}",
+                    webhook.id(), webhook.attempts(), error.getMessage(), error);
+            return new FailedWebhook(webhook.id(), WebhookStatus.DEAD, now, error.getMessage());
+        }
+
+        retried.increment();
+        long backoffMillis = Math.min(
+                initialBackoff.toMillis() << Math.min(webhook.attempts() - 1, 20),
+                maxBackoff.toMillis());
+        log.warn("Webhook {} failed (attempt {}), retrying in {} ms: {}",
+                webhook.id(), webhook.attempts(), backoffMillis, error.getMessage());
+        return new FailedWebhook(webhook.id(), WebhookStatus.PENDING,
+                now.plus(Duration.ofMillis(backoffMillis)), error.getMessage());
+    }
+
+    private static String sha256(byte[] payload) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(payload));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
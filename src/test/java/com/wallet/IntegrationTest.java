@@ -0,0 +1,58 @@
+package com.wallet;
+
+import com.wallet.entity.User;
+import com.wallet.service.UserService;
+import com.wallet.service.WalletService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Runs against a real Postgres: one container is shared by every test class in the run.
+// The values application.yml takes from the environment are filled with test settings.
+@SpringBootTest(properties = {
+        "POSTGRES_HOST=localhost",
+        "POSTGRES_PORT=5432",
+        "POSTGRES_USERNAME=test",
+        "POSTGRES_PASSWORD=test",
+        "GOOGLE_CLIENT_ID=test-client",
+        "GOOGLE_CLIENT_SECRET=test-secret",
+        "JWT_SECRET=dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtMTIzNDU2Nzg=",
+        "PAYSTACK_SECRET_KEY=sk_test_secret",
+        "PAYSTACK_PUBLIC_KEY=pk_test_public",
+        "PAYSTACK_WEBHOOK_SECRET=test-webhook-secret",
+        "app.wallet.deposit.reconciler.enabled=false",
+        "logging.level.com.wallet=INFO",
+        "logging.level.org.springframework.security=INFO"
+})
+public abstract class IntegrationTest {
+
+    @ServiceConnection
+    protected static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @Autowired
+    protected UserService userService;
+
+    @Autowired
+    protected WalletService walletService;
+
+    // A signed-up user with an empty wallet; every call creates a new one
+    protected User newUser() {
+        String id = UUID.randomUUID().toString();
+        return userService.findOrCreateUser("google-" + id, id + "@wallet.test", "Test " + id, null);
+    }
+
+    protected User newFundedUser(BigDecimal balance) {
+        User user = newUser();
+        String reference = "fund_" + UUID.randomUUID();
+        walletService.deposit(user, balance, reference, reference);
+        return user;
+    }
+}
@@ -1,10 +1,8 @@
 package com.wallet;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
-class WalletApiServiceApplicationTests {
+class WalletApiServiceApplicationTests extends IntegrationTest {
 
     @Test
     void contextLoads() {
@@ -0,0 +1,149 @@
+package com.wallet.config;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.User;
+import com.wallet.security.ReadYourWritesFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// Two separate Postgres instances, told apart by database name: the shared test container as
+// the primary and a second one as the replica. Replication itself is not under test, only
+// which of the two each kind of work is sent to.
+class ReplicaRoutingTest extends IntegrationTest {
+
+    private static final String REPLICA_DATABASE = "replica";
+
+    private static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName(REPLICA_DATABASE);
+
+    static {
+        REPLICA.start();
+    }
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        registry.add("app.datasource.replica.enabled", () -> "true");
+        registry.add("app.datasource.replica.url", REPLICA::getJdbcUrl);
+        registry.add("app.datasource.replica.username", REPLICA::getUsername);
+        registry.add("app.datasource.replica.password", REPLICA::getPassword);
+        // Checked by the test itself, so the schedule cannot undo markDown mid-test
+        registry.add("app.datasource.replica.health-check-interval-ms", () -> "3600000");
+        registry.add("app.datasource.replica.read-your-writes", () -> "/wallet/balance=1s");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ReplicaHealth replicaHealth;
+
+    @Autowired
+    private ReadYourWritesFilter readYourWritesFilter;
+
+    @Autowired
+    private DatabaseNotifications notifications;
+
+    @BeforeEach
+    void replicaInRotation() {
+        replicaHealth.check();
+        assertThat(replicaHealth.isUsable()).isTrue();
+        await().atMost(Duration.ofSeconds(30)).until(notifications::isListening);
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertThat(readOnly()).isEqualTo(REPLICA_DATABASE);
+    }
+
+    @Test
+    void writeTransactionsGoToThePrimary() {
+        assertThat(transactionTemplate.execute(status -> currentDatabase())).isEqualTo(POSTGRES.getDatabaseName());
+    }
+
+    @Test
+    void pinnedReadsGoToThePrimary() {
+        ReadReplicaRoutingDataSource.pinToPrimary();
+        try {
+            assertThat(readOnly()).isEqualTo(POSTGRES.getDatabaseName());
+        } finally {
+            ReadReplicaRoutingDataSource.unpin();
+        }
+        assertThat(readOnly()).isEqualTo(REPLICA_DATABASE);
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhileTheReplicaIsDown() {
+        replicaHealth.markDown(new IllegalStateException("test"));
+        assertThat(readOnly()).isEqualTo(POSTGRES.getDatabaseName());
+
+        replicaHealth.check();
+        assertThat(readOnly()).isEqualTo(REPLICA_DATABASE);
+    }
+
+    @Test
+    void readAfterAWriteIsPinnedForItsWindow() throws Exception {
+        User user = newUser();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        // Every configured read is pinned for one window after the listener connects
+        await().atMost(Duration.ofSeconds(10)).until(() -> REPLICA_DATABASE.equals(balanceRead()));
+
+        filter("POST", "/wallet/transfer");
+        assertThat(balanceRead()).isEqualTo(POSTGRES.getDatabaseName());
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> REPLICA_DATABASE.equals(balanceRead()));
+    }
+
+    // Database a GET /wallet/balance read through the filter chain lands on
+    private String balanceRead() throws Exception {
+        AtomicReference<String> database = new AtomicReference<>();
+        filter("GET", "/wallet/balance", () -> database.set(readOnly()));
+        return database.get();
+    }
+
+    private void filter(String method, String path) throws Exception {
+        filter(method, path, () -> {
+        });
+    }
+
+    private void filter(String method, String path, Runnable work) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        readYourWritesFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> work.run());
+    }
+
+    private String readOnly() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> currentDatabase());
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+    }
+}
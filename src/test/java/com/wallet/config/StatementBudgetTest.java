@@ -0,0 +1,125 @@
+package com.wallet.config;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.Transaction;
+import com.wallet.entity.User;
+import com.wallet.service.TransactionService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Budgets are enforced here, so any of these paths growing a statement fails the build
+@TestPropertySource(properties = "app.db.statement-budget.fail-on-exceed=true")
+class StatementBudgetTest extends IntegrationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BudgetedWork budgetedWork;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void transferStaysWithinBudget() {
+        User sender = newFundedUser(new BigDecimal("100.00"));
+        User receiver = newUser();
+
+        walletService.transfer(sender, receiver.getWalletNumber(), new BigDecimal("10.00"),
+                "budget_" + UUID.randomUUID());
+
+        assertThat(recorded("WalletService.transfer").max()).isBetween(1.0, 5.0);
+    }
+
+    @Test
+    void depositStaysWithinBudget() {
+        newFundedUser(new BigDecimal("50.00"));
+
+        assertThat(recorded("WalletService.deposit").max()).isBetween(1.0, 5.0);
+    }
+
+    @Test
+    void markDepositSuccessfulStaysWithinBudget() {
+        User user = newUser();
+        String reference = "budget_" + UUID.randomUUID();
+        BigDecimal amount = new BigDecimal("25.00");
+        transactionService.createPendingDeposit(user, amount, reference);
+        Transaction transaction = transactionService.getTransactionByReference(reference);
+
+        transactionService.markDepositSuccessful(transaction, amount);
+
+        assertThat(recorded("TransactionService.markDepositSuccessful").max()).isBetween(1.0, 5.0);
+        assertThat(walletService.getBalance(user).getBalance()).isEqualByComparingTo(amount);
+    }
+
+    @Test
+    void overBudgetCallFails() {
+        assertThatThrownBy(budgetedWork::twoQueries)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("budget is 1");
+    }
+
+    @Test
+    void retriedAttemptsAreOutsideTheBudget() {
+        budgetedWork.queryAfterRetriedAttempt();
+
+        assertThat(recorded("BudgetedWork.queryAfterRetriedAttempt").max()).isEqualTo(1.0);
+        assertThat(meterRegistry.find("db.statements.retried")
+                .tag("method", "BudgetedWork.queryAfterRetriedAttempt")
+                .summary()
+                .max()).isEqualTo(2.0);
+    }
+
+    private DistributionSummary recorded(String method) {
+        DistributionSummary summary = meterRegistry.find("db.statements.method").tag("method", method).summary();
+        assertThat(summary).as("statements recorded for %s", method).isNotNull();
+        return summary;
+    }
+
+    @TestConfiguration
+    static class BudgetedWorkConfig {
+
+        @Bean
+        BudgetedWork budgetedWork(JdbcTemplate jdbcTemplate) {
+            return new BudgetedWork(jdbcTemplate);
+        }
+    }
+
+    static class BudgetedWork {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        BudgetedWork(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @StatementBudget(1)
+        public void twoQueries() {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            jdbcTemplate.queryForObject("SELECT 2", Integer.class);
+        }
+
+        // Like a transfer whose first attempt hit a deadlock and was run again
+        @StatementBudget(1)
+        public void queryAfterRetriedAttempt() {
+            long attemptStart = StatementCounter.current();
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            jdbcTemplate.queryForObject("SELECT 2", Integer.class);
+            StatementCounter.markRetried(StatementCounter.current() - attemptStart);
+
+            jdbcTemplate.queryForObject("SELECT 3", Integer.class);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.wallet.controller;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.User;
+import com.wallet.service.DepositService;
+import com.wallet.service.PaystackStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// How long a deposit holds the thread that called the controller while Paystack is slow,
+// against how long the deposit takes end to end. Paystack is the PaystackStub that
+// PaystackClientTest uses, with a fixed delay. The blocking variant waits for the same
+// deposit on the calling thread, which is what the controller did before it went async.
+@Tag("stress")
+@AutoConfigureMockMvc
+class DepositThreadOccupancyTest extends IntegrationTest {
+
+    private static final long PAYSTACK_DELAY_MS = 300;
+    private static final int CALLERS = 16;
+    private static final int DEPOSITS_PER_CALLER = 10;
+
+    private static final PaystackStub PAYSTACK = new PaystackStub("{\"status\":true," +
+            "\"message\":\"Authorization URL created\",\"data\":{\"authorization_url\":" +
+            "\"https://checkout.paystack.test/x\",\"access_code\":\"x\",\"reference\":\"ref_1\"}}");
+
+    static {
+        PAYSTACK.delay(PAYSTACK_DELAY_MS);
+    }
+
+    @DynamicPropertySource
+    static void paystack(DynamicPropertyRegistry registry) {
+        registry.add("app.paystack.base-url", PAYSTACK::baseUrl);
+    }
+
+    @AfterAll
+    static void stopPaystackStub() {
+        PAYSTACK.stop();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DepositService depositService;
+
+    private interface Deposit {
+        // Milliseconds the calling thread was held
+        long run(User user) throws Exception;
+    }
+
+    private record Result(List<Long> heldMs, double perSecond) {
+
+        long percentile(double p) {
+            return heldMs.get((int) Math.min(heldMs.size() - 1, Math.floor(p * heldMs.size())));
+        }
+    }
+
+    @Test
+    void slowPaystackDoesNotHoldTheCallingThread() throws Exception {
+        Result blocking = run(this::blocking);
+        Result async = run(this::async);
+
+        print("blocking", blocking);
+        print("async", async);
+
+        assertThat(blocking.percentile(0.5)).isGreaterThanOrEqualTo(PAYSTACK_DELAY_MS);
+        assertThat(async.percentile(0.99)).isLessThan(PAYSTACK_DELAY_MS);
+    }
+
+    private long blocking(User user) {
+        long startedAt = System.nanoTime();
+        depositService.initializeDeposit(user, new BigDecimal("100.00")).join();
+        return (System.nanoTime() - startedAt) / 1_000_000;
+    }
+
+    // The thread is released when perform returns with the request in async mode
+    private long async(User user) throws Exception {
+        long startedAt = System.nanoTime();
+        MvcResult started = mockMvc.perform(post("/wallet/deposit")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":100.00}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        long heldMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        return heldMs;
+    }
+
+    private Result run(Deposit deposit) throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            users.add(newUser());
+        }
+
+        List<Long> heldMs = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (User user : users) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int n = 0; n < DEPOSITS_PER_CALLER; n++) {
+                    heldMs.add(deposit.run(user));
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        List<Long> sorted = new ArrayList<>(heldMs);
+        Collections.sort(sorted);
+        return new Result(sorted, CALLERS * DEPOSITS_PER_CALLER / (elapsed / 1e9));
+    }
+
+    private static void print(String variant, Result result) {
+        System.out.printf("%-9s calling thread held p50 %4d ms, p99 %4d ms; %.1f deposits/s%n",
+                variant + ":", result.percentile(0.5), result.percentile(0.99), result.perSecond());
+    }
+}
@@ -0,0 +1,71 @@
+package com.wallet.entity;
+
+import com.wallet.IntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Insert rate and primary key size for the same number of rows keyed by random v4 UUIDs
+// and by UUIDv7, both stored as varchar like the entity ids. Random keys split pages all
+// over the B-tree and leave them half full; time-ordered keys fill the rightmost leaf.
+// Two million rows rather than fifty keep the run to minutes; the size ratio is already
+// settled at this count, while the insert-rate gap keeps widening once the random index
+// outgrows shared_buffers, so the rate here understates it.
+@Tag("stress")
+class TimeOrderedIdBenchmarkTest extends IntegrationTest {
+
+    private static final int ROWS = 2_000_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record Result(double perSecond, long indexBytes) {
+    }
+
+    @AfterEach
+    void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS id_bench_random, id_bench_v7");
+    }
+
+    @Test
+    void timeOrderedKeysKeepThePrimaryKeySmaller() {
+        Map<String, Result> results = new LinkedHashMap<>();
+        results.put("random v4", insert("id_bench_random", () -> UUID.randomUUID().toString()));
+        results.put("UUIDv7", insert("id_bench_v7", TimeOrderedIdGenerator::nextId));
+        results.forEach((variant, result) ->
+                System.out.printf("%,d rows keyed by %-10s %6.0f inserts/s, primary key %,d MB%n",
+                        ROWS, variant + ":", result.perSecond(), result.indexBytes() / (1024 * 1024)));
+
+        assertThat(results.get("UUIDv7").indexBytes()).isLessThan(results.get("random v4").indexBytes());
+    }
+
+    private Result insert(String table, Supplier<String> ids) {
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id varchar(255) PRIMARY KEY, created_at timestamp NOT NULL)");
+
+        long startedAt = System.nanoTime();
+        for (int inserted = 0; inserted < ROWS; inserted += BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(new Object[]{ids.get()});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, created_at) VALUES (?, now())", batch);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+
+        Long indexBytes = jdbcTemplate.queryForObject("SELECT pg_relation_size(?::regclass)", Long.class,
+                table + "_pkey");
+        return new Result(ROWS / (elapsed / 1e9), indexBytes);
+    }
+}
@@ -0,0 +1,116 @@
+package com.wallet.security;
+
+import com.wallet.IntegrationTest;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Token verifications per second the way an authenticated request used to do them (key and
+// parser rebuilt, token parsed three times), with the parser built once, and through
+// JwtService.verify with its cache of verified tokens. Each thread cycles through the same
+// set of tokens, as a user's requests repeat one token until it expires.
+@Tag("stress")
+class JwtVerifyBenchmarkTest extends IntegrationTest {
+
+    private static final int TOKENS = 1_000;
+    private static final int THREADS = 8;
+    private static final int WARMUP_PER_THREAD = 20_000;
+    private static final int VERIFICATIONS_PER_THREAD = 100_000;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Value("${app.jwt.secret}")
+    private String secret;
+
+    @Test
+    void cachedVerificationOutrunsParsingEveryRequest() throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < TOKENS; i++) {
+            tokens.add(jwtService.generateToken(User.withUsername("bench-" + i + "@wallet.test")
+                    .password("unused")
+                    .build()));
+        }
+        JwtParser parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .build();
+
+        Map<String, Double> throughput = new LinkedHashMap<>();
+        throughput.put("parser per call", run(tokens, this::verifyAsBefore));
+        throughput.put("shared parser", run(tokens, token -> parser.parseSignedClaims(token).getPayload().getSubject()));
+        throughput.put("verified cache", run(tokens, token -> jwtService.verify(token).subject()));
+        throughput.forEach((variant, perSecond) ->
+                System.out.printf("JWT verifications via %-16s %.0f/s%n", variant + ":", perSecond));
+
+        assertThat(throughput.get("shared parser")).isGreaterThan(throughput.get("parser per call"));
+        assertThat(throughput.get("verified cache")).isGreaterThan(throughput.get("shared parser"));
+    }
+
+    // extractUsername, isTokenValid -> extractUsername, extractExpiration, each building its own parser
+    private String verifyAsBefore(String token) {
+        String subject = claims(token).getSubject();
+        claims(token).getSubject();
+        claims(token).getExpiration();
+        return subject;
+    }
+
+    private Claims claims(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private double run(List<String> tokens, Function<String, String> verify) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch warm = new CountDownLatch(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * (TOKENS / THREADS);
+            workers.add(pool.submit(() -> {
+                for (int n = 0; n < WARMUP_PER_THREAD; n++) {
+                    verify.apply(tokens.get((offset + n) % TOKENS));
+                }
+                warm.countDown();
+                start.await();
+                for (int n = 0; n < VERIFICATIONS_PER_THREAD; n++) {
+                    assertThat(verify.apply(tokens.get((offset + n) % TOKENS))).isNotNull();
+                }
+                return null;
+            }));
+        }
+
+        // The clock starts once every thread has finished its warm-up
+        warm.await();
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+        return (double) THREADS * VERIFICATIONS_PER_THREAD / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,56 @@
+package com.wallet.security;
+
+import com.wallet.IntegrationTest;
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.entity.User;
+import com.wallet.security.PrincipalCache.UserSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class PrincipalCacheTest extends IntegrationTest {
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private DatabaseNotifications notifications;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void waitForListener() {
+        await().atMost(Duration.ofSeconds(30)).until(notifications::isListening);
+    }
+
+    @Test
+    void emailChangeOutsideTheEntityEvictsTheOldSubject() {
+        User user = newUser();
+        AtomicInteger loads = new AtomicInteger();
+        principalCache.get(user.getEmail(), subject -> {
+            loads.incrementAndGet();
+            return UserSnapshot.of(user);
+        });
+
+        // A bulk update the JPA lifecycle never sees
+        jdbcTemplate.update("UPDATE users SET email = ? WHERE id = ?",
+                UUID.randomUUID() + "@wallet.test", user.getId());
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> {
+            principalCache.get(user.getEmail(), subject -> {
+                loads.incrementAndGet();
+                return null;
+            });
+            return loads.get() > 1;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.dtos.request.CreateApiKeyRequest;
+import com.wallet.entity.User;
+import com.wallet.enums.ApiKeyPermission;
+import com.wallet.enums.ExpiryDuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ApiKeyCacheTest extends IntegrationTest {
+
+    @Autowired
+    private ApiKeyService apiKeyService;
+
+    @Autowired
+    private ApiKeyCache apiKeyCache;
+
+    @Autowired
+    private DatabaseNotifications notifications;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void waitForListener() {
+        await().atMost(Duration.ofSeconds(30)).until(notifications::isListening);
+    }
+
+    @Test
+    void deactivationOutsideThisInstanceRevokesTheCachedKey() {
+        User user = newUser();
+        String apiKey = createApiKey(user);
+        assertThat(apiKeyService.validateApiKey(apiKey)).isNotNull();
+
+        // Plain SQL, as another instance or an operator would run it; the users trigger announces it
+        jdbcTemplate.update("UPDATE users SET is_active = false WHERE id = ?", user.getId());
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> apiKeyService.validateApiKey(apiKey) == null);
+    }
+
+    @Test
+    void evictionIsOnlyAnnouncedWhenTheTransactionCommits() {
+        User user = newUser();
+        String apiKey = createApiKey(user);
+        String apiKeyId = apiKeyService.validateApiKey(apiKey).id();
+        jdbcTemplate.update("UPDATE api_keys SET is_active = false WHERE id = ?", apiKeyId);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            apiKeyCache.evictKey(apiKeyId);
+            status.setRollbackOnly();
+        });
+        // Nothing announced, so the cached key still authenticates
+        assertThat(apiKeyService.validateApiKey(apiKey)).isNotNull();
+
+        transactionTemplate.executeWithoutResult(status -> apiKeyCache.evictKey(apiKeyId));
+        assertThat(apiKeyService.validateApiKey(apiKey)).isNull();
+    }
+
+    private String createApiKey(User user) {
+        CreateApiKeyRequest request = new CreateApiKeyRequest();
+        request.setName("cache test");
+        request.setPermissions(Set.of(ApiKeyPermission.READ));
+        request.setExpiry(ExpiryDuration.DAY);
+        return apiKeyService.createApiKey(user, request).getApiKey();
+    }
+}
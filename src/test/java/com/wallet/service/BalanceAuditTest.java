@@ -0,0 +1,51 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.repository.BalanceAuditJdbcRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BalanceAuditTest extends IntegrationTest {
+
+    @Autowired
+    private BalanceAudit balanceAudit;
+
+    @Autowired
+    private BalanceAuditJdbcRepository balanceAuditJdbcRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime auditedAt = LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.SECONDS);
+
+    @AfterEach
+    void removeAudit() {
+        jdbcTemplate.update("DELETE FROM balance_audits WHERE audited_at = ?", auditedAt);
+        balanceAudit.refresh();
+    }
+
+    @Test
+    void gaugesReportAnAuditAnotherInstanceRan() {
+        // As the instance holding the audit lock would store it
+        balanceAuditJdbcRepository.record(new BigDecimal("12.34"), auditedAt);
+
+        balanceAudit.refresh();
+
+        assertThat(meterRegistry.get("wallet.balance.unexplained").gauge().value()).isEqualTo(12.34);
+        assertThat(meterRegistry.get("wallet.balance.audit.timestamp").gauge().value())
+                .isEqualTo((double) auditedAt.atZone(ZoneId.systemDefault()).toEpochSecond());
+    }
+}
@@ -0,0 +1,148 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.config.DatabaseNotifications;
+import com.wallet.entity.User;
+import com.wallet.exception.InsufficientBalanceException;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.VersionedBalance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class BalanceCacheConsistencyTest extends IntegrationTest {
+
+    private static final int WALLETS = 6;
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int TRANSFERS_PER_WRITER = 100;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private DatabaseNotifications notifications;
+
+    @Autowired
+    private WalletJdbcRepository walletJdbcRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void waitForListener() {
+        await().atMost(Duration.ofSeconds(30)).until(notifications::isListening);
+    }
+
+    @Test
+    void cacheMatchesTheDatabaseAfterConcurrentTransfersAndReads() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            users.add(newFundedUser(new BigDecimal("500.00")));
+        }
+        List<String> userIds = users.stream().map(User::getId).toList();
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            writers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < TRANSFERS_PER_WRITER; n++) {
+                    int from = random.nextInt(WALLETS);
+                    int to = (from + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+                    try {
+                        walletService.transfer(users.get(from), users.get(to).getWalletNumber(),
+                                BigDecimal.valueOf(random.nextInt(1, 2000), 2), "cache_" + UUID.randomUUID());
+                    } catch (InsufficientBalanceException ignored) {
+                        // Rejected transfers change nothing
+                    }
+                }
+            }));
+        }
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(pool.submit(() -> {
+                // Misses fill the cache from the database while writers keep changing it
+                while (writing.get()) {
+                    walletService.getBalance(users.get(ThreadLocalRandom.current().nextInt(WALLETS)));
+                }
+            }));
+        }
+
+        for (Future<?> writer : writers) {
+            writer.get(5, TimeUnit.MINUTES);
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        Map<String, VersionedBalance> stored = walletJdbcRepository.findVersionedBalances(userIds);
+        for (User user : users) {
+            VersionedBalance cached = balanceCache.get(user.getId());
+            if (cached != null) {
+                assertThat(cached.version()).isEqualTo(stored.get(user.getId()).version());
+                assertThat(cached.balance()).isEqualByComparingTo(stored.get(user.getId()).balance());
+            }
+            assertThat(walletService.getBalance(user).getBalance())
+                    .isEqualByComparingTo(stored.get(user.getId()).balance());
+        }
+    }
+
+    @Test
+    void committedWriteIsCachedWithoutReadingItBack() {
+        User user = newFundedUser(new BigDecimal("100.00"));
+        User receiver = newUser();
+        walletService.getBalance(user);
+        long before = balanceCache.get(user.getId()).version();
+
+        walletService.transfer(user, receiver.getWalletNumber(), new BigDecimal("30.00"),
+                "cache_" + UUID.randomUUID());
+
+        VersionedBalance cached = balanceCache.get(user.getId());
+        assertThat(cached.version()).isEqualTo(before + 1);
+        assertThat(cached.balance()).isEqualByComparingTo("70.00");
+    }
+
+    @Test
+    void writeFromAnotherInstanceEvictsTheCachedBalance() {
+        User user = newFundedUser(new BigDecimal("100.00"));
+        walletService.getBalance(user);
+        VersionedBalance cached = balanceCache.get(user.getId());
+        assertThat(cached).isNotNull();
+
+        // What another instance's credit looks like from here: a committed row change, then
+        // that instance's announcement of the new version
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + 1, balance_version = balance_version + 1 " +
+                "WHERE user_id = ?", user.getId());
+        jdbcTemplate.queryForObject("SELECT pg_notify('balance_changed', ?)", Object.class,
+                user.getId() + ":" + (cached.version() + 1));
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> balanceCache.get(user.getId()) == null);
+        assertThat(walletService.getBalance(user).getBalance()).isEqualByComparingTo("101.00");
+
+        // A read that started before the change cannot put the older balance back
+        balanceCache.offer(user.getId(), cached);
+        assertThat(balanceCache.get(user.getId()).version()).isGreaterThan(cached.version());
+    }
+}
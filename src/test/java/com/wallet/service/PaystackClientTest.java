@@ -0,0 +1,141 @@
+package com.wallet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.config.PaystackClientConfig;
+import com.wallet.dtos.paystack.VerifyTransactionData;
+import com.wallet.exception.BadRequestException;
+import com.wallet.exception.PaystackUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// PaystackClient against a local stub server whose latency and status are set per test
+class PaystackClientTest {
+
+    private static final String VERIFIED = "{\"status\":true,\"message\":\"Verification successful\"," +
+            "\"data\":{\"status\":\"success\",\"reference\":\"ref_1\",\"amount\":150000,\"extra\":1}}";
+
+    private PaystackStub paystack;
+
+    @BeforeEach
+    void startStub() {
+        paystack = new PaystackStub(VERIFIED);
+    }
+
+    @AfterEach
+    void stopStub() {
+        paystack.stop();
+    }
+
+    @Test
+    void parsesTypedResponse() {
+        VerifyTransactionData data = client(20, 3, Duration.ofSeconds(30), Duration.ofSeconds(2))
+                .verifyTransaction("ref_1");
+
+        assertThat(data.getStatus()).isEqualTo("success");
+        assertThat(data.getReference()).isEqualTo("ref_1");
+        assertThat(data.getAmount()).isEqualTo(150000);
+    }
+
+    @Test
+    void serverErrorsOpenTheCircuitAndLaterCallsFailFast() {
+        PaystackClient client = client(20, 3, Duration.ofSeconds(30), Duration.ofSeconds(2));
+        paystack.respond(500, "{\"status\":false,\"message\":\"Internal error\"}");
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.verifyTransaction("ref_1"))
+                    .isInstanceOf(PaystackUnavailableException.class)
+                    .hasMessage("Paystack service error");
+        }
+        assertThatThrownBy(() -> client.verifyTransaction("ref_1"))
+                .isInstanceOf(PaystackUnavailableException.class)
+                .hasMessageContaining("unavailable");
+        assertThat(paystack.requests()).isEqualTo(3);
+    }
+
+    @Test
+    void circuitClosesAfterASuccessfulTrialCall() throws InterruptedException {
+        PaystackClient client = client(20, 2, Duration.ofMillis(200), Duration.ofSeconds(2));
+        paystack.respond(503, VERIFIED);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.verifyTransaction("ref_1"))
+                    .isInstanceOf(PaystackUnavailableException.class);
+        }
+
+        paystack.respond(200, VERIFIED);
+        Thread.sleep(300);
+
+        assertThat(client.verifyTransaction("ref_1").getReference()).isEqualTo("ref_1");
+        assertThat(client.verifyTransaction("ref_1").getReference()).isEqualTo("ref_1");
+    }
+
+    @Test
+    void slowResponsesHitTheReadTimeout() {
+        PaystackClient client = client(20, 3, Duration.ofSeconds(30), Duration.ofMillis(200));
+        paystack.delay(2000);
+
+        long startedAt = System.nanoTime();
+        assertThatThrownBy(() -> client.verifyTransaction("ref_1"))
+                .isInstanceOf(PaystackUnavailableException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofMillis(1500));
+    }
+
+    @Test
+    void callsBeyondTheBulkheadAreRejected() throws Exception {
+        PaystackClient client = client(2, 10, Duration.ofSeconds(30), Duration.ofSeconds(5));
+        paystack.delay(1000);
+
+        List<CompletableFuture<VerifyTransactionData>> inFlight = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            inFlight.add(CompletableFuture.supplyAsync(() -> client.verifyTransaction("ref_1")));
+        }
+        while (paystack.requests() < 2) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> client.verifyTransaction("ref_1"))
+                .isInstanceOf(PaystackUnavailableException.class)
+                .hasMessageContaining("Too many concurrent");
+        for (CompletableFuture<VerifyTransactionData> call : inFlight) {
+            assertThat(call.get().getReference()).isEqualTo("ref_1");
+        }
+        assertThat(paystack.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectedRequestsDoNotOpenTheCircuit() {
+        PaystackClient client = client(20, 2, Duration.ofSeconds(30), Duration.ofSeconds(2));
+        paystack.respond(400, "{\"status\":false,\"message\":\"Invalid reference\"}");
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> client.verifyTransaction("ref_1"))
+                    .isInstanceOf(BadRequestException.class);
+        }
+        assertThat(paystack.requests()).isEqualTo(4);
+    }
+
+    private PaystackClient client(int maxConcurrentCalls, int failureThreshold, Duration openDuration,
+                                  Duration readTimeout) {
+        PaystackClient client = new PaystackClient(
+                new PaystackClientConfig().paystackRestTemplate(new ObjectMapper(),
+                        paystack.baseUrl(), Duration.ofSeconds(1), readTimeout),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(client, "secretKey", "sk_test_secret");
+        ReflectionTestUtils.setField(client, "maxConcurrentCalls", maxConcurrentCalls);
+        ReflectionTestUtils.setField(client, "acquireTimeout", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(client, "failureThreshold", failureThreshold);
+        ReflectionTestUtils.setField(client, "openDuration", openDuration);
+        client.init();
+        return client;
+    }
+}
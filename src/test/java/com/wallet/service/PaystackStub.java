@@ -0,0 +1,76 @@
+package com.wallet.service;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A local stand-in for the Paystack API: every request gets the same status and body after
+// the same delay, all of which a test can change while it runs
+public class PaystackStub {
+
+    private final HttpServer server;
+    private final ExecutorService serverThreads;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile String body;
+    private volatile long delayMs;
+
+    public PaystackStub(String body) {
+        this.body = body;
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = this.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            try {
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (IOException e) {
+                // The client gave up waiting
+            }
+        });
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public void respond(int status, String body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    public void delay(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    public void stop() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+}
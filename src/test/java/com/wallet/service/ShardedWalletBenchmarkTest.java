@@ -0,0 +1,109 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.User;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletSlotJdbcRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Many payers crediting one merchant, with the merchant's wallet unsharded and then spread
+// over more and more slots. Reports credits per second for each slot count.
+@Tag("stress")
+class ShardedWalletBenchmarkTest extends IntegrationTest {
+
+    private static final int PAYERS = 32;
+    private static final int TRANSFERS_PER_PAYER = 200;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final int[] SLOT_COUNTS = {0, 4, 16};
+
+    @Autowired
+    private WalletSlots walletSlots;
+
+    @Autowired
+    private WalletSlotJdbcRepository walletSlotJdbcRepository;
+
+    @Autowired
+    private WalletJdbcRepository walletJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void merchantCreditThroughputScalesWithSlots() throws Exception {
+        User merchant = newUser();
+        List<User> payers = new ArrayList<>();
+        for (int i = 0; i < PAYERS; i++) {
+            payers.add(newFundedUser(new BigDecimal("10000.00")));
+        }
+
+        Map<Integer, Double> throughput = new LinkedHashMap<>();
+        for (int slots : SLOT_COUNTS) {
+            shard(merchant, slots);
+            throughput.put(slots, run(merchant, payers));
+        }
+        throughput.forEach((slots, perSecond) ->
+                System.out.printf("Merchant credits with %2d slots: %.0f/s%n", slots, perSecond));
+
+        BigDecimal expected = AMOUNT.multiply(BigDecimal.valueOf((long) PAYERS * TRANSFERS_PER_PAYER * SLOT_COUNTS.length));
+        assertThat(walletJdbcRepository.findBalanceByUserId(merchant.getId()))
+                .hasValueSatisfying(balance -> assertThat(balance).isEqualByComparingTo(expected));
+        assertThat(throughput.get(16)).isGreaterThan(throughput.get(0));
+    }
+
+    // 0 slots is the plain single-row wallet
+    private void shard(User merchant, int slots) {
+        if (slots == 0) {
+            transactionTemplate.executeWithoutResult(status -> {
+                walletSlotJdbcRepository.sweep(merchant.getId(), LocalDateTime.now());
+                walletSlotJdbcRepository.disable(merchant.getId());
+            });
+        } else {
+            walletSlotJdbcRepository.enable(merchant.getWalletNumber(), slots);
+        }
+        // Sweeps leftover slot balances and reloads which wallets are sharded
+        walletSlots.rebalance();
+        assertThat(walletSlots.isSharded(merchant.getId())).isEqualTo(slots > 0);
+    }
+
+    private double run(User merchant, List<User> payers) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(payers.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (User payer : payers) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int n = 0; n < TRANSFERS_PER_PAYER; n++) {
+                    walletService.transfer(payer, merchant.getWalletNumber(), AMOUNT, "bench_" + UUID.randomUUID());
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+        return payers.size() * TRANSFERS_PER_PAYER / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,68 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.User;
+import com.wallet.enums.ExportFormat;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// A million rows are far more than the heap could hold as DTOs, so this only passes while
+// the export streams. Runs in the low-memory surefire execution of the stress profile.
+@Tag("low-memory")
+class TransactionExportMemoryTest extends IntegrationTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final long MAX_HEAP = 256L * 1024 * 1024;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void exportsAMillionRowsWithinASmallHeap() throws IOException {
+        assumeTrue(Runtime.getRuntime().maxMemory() <= MAX_HEAP, "needs a heap of at most 256 MB");
+
+        User user = newUser();
+        jdbcTemplate.update(
+                "INSERT INTO transactions (id, reference, user_id, type, amount, status, created_at, updated_at) " +
+                        "SELECT ? || '-' || g, ? || '_' || g, ?, 'DEPOSIT', 10.00, 'SUCCESS', " +
+                        "TIMESTAMP '2024-01-01' + g * INTERVAL '1 second', now() " +
+                        "FROM generate_series(1, ?) g",
+                user.getId(), "export_" + user.getId(), user.getId(), ROWS
+        );
+
+        LineCounter out = new LineCounter();
+        transactionExportService.export(user, ExportFormat.NDJSON, null, null, out);
+
+        assertThat(out.lines).isEqualTo(ROWS);
+    }
+
+    private static class LineCounter extends OutputStream {
+
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(bytes[i]);
+            }
+        }
+    }
+}
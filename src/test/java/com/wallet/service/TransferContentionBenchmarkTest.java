@@ -0,0 +1,160 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.User;
+import com.wallet.entity.Wallet;
+import com.wallet.exception.InsufficientBalanceException;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.VersionedBalance;
+import com.wallet.repository.WalletRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Transfers per second between a small set of wallets under contention: the entity
+// read-modify-write that transfer used to do, against the guarded UPDATEs it uses now, with
+// and without ordered row locking. Reports how much money each variant created or lost.
+@Tag("stress")
+class TransferContentionBenchmarkTest extends IntegrationTest {
+
+    private static final int WALLETS = 10;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 200;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletJdbcRepository walletJdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private interface TransferCall {
+        void transfer(User sender, User receiver, BigDecimal amount);
+    }
+
+    private record Result(double perSecond, BigDecimal drift, int failures) {
+    }
+
+    @Test
+    void guardedUpdatesConserveMoneyUnderContention() throws Exception {
+        // The field lives on the target; walletService is an advised proxy
+        WalletService target = AopTestUtils.getUltimateTargetObject(walletService);
+        boolean pessimisticLocking = (boolean) ReflectionTestUtils.getField(target, "pessimisticLocking");
+        try {
+            Result readModifyWrite = run(this::readModifyWrite);
+
+            ReflectionTestUtils.setField(target, "pessimisticLocking", false);
+            Result guarded = run(this::guarded);
+
+            ReflectionTestUtils.setField(target, "pessimisticLocking", true);
+            Result guardedLocked = run(this::guarded);
+
+            print("read-modify-write", readModifyWrite);
+            print("guarded updates", guarded);
+            print("guarded + locks", guardedLocked);
+
+            assertThat(guarded.drift()).isEqualByComparingTo(BigDecimal.ZERO);
+            assertThat(guardedLocked.drift()).isEqualByComparingTo(BigDecimal.ZERO);
+            assertThat(guardedLocked.failures()).isZero();
+        } finally {
+            ReflectionTestUtils.setField(target, "pessimisticLocking", pessimisticLocking);
+        }
+    }
+
+    // What transfer did before: load both wallets, check and change the balances in Java, save
+    private void readModifyWrite(User sender, User receiver, BigDecimal amount) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Wallet from = walletRepository.findByUserId(sender.getId()).orElseThrow();
+            Wallet to = walletRepository.findByWalletNumber(receiver.getWalletNumber()).orElseThrow();
+            if (from.getBalance().compareTo(amount) < 0) {
+                throw new InsufficientBalanceException("Insufficient balance");
+            }
+            from.setBalance(from.getBalance().subtract(amount));
+            to.setBalance(to.getBalance().add(amount));
+            walletRepository.save(from);
+            walletRepository.save(to);
+        });
+    }
+
+    private void guarded(User sender, User receiver, BigDecimal amount) {
+        walletService.transfer(sender, receiver.getWalletNumber(), amount, "bench_" + UUID.randomUUID());
+    }
+
+    private Result run(TransferCall call) throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            users.add(newFundedUser(OPENING_BALANCE));
+        }
+        List<String> userIds = users.stream().map(User::getId).toList();
+        BigDecimal totalBefore = total(userIds);
+
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < TRANSFERS_PER_THREAD; n++) {
+                    int from = random.nextInt(WALLETS);
+                    int to = (from + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+                    try {
+                        call.transfer(users.get(from), users.get(to), BigDecimal.valueOf(random.nextInt(1, 5000), 2));
+                    } catch (InsufficientBalanceException ignored) {
+                        // Rejected transfers change nothing
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        return new Result(THREADS * TRANSFERS_PER_THREAD / (elapsed / 1e9),
+                total(userIds).subtract(totalBefore), failures.size());
+    }
+
+    private BigDecimal total(List<String> userIds) {
+        Map<String, VersionedBalance> balances = walletJdbcRepository.findVersionedBalances(userIds);
+        assertThat(balances).hasSize(userIds.size());
+        return balances.values().stream()
+                .map(VersionedBalance::balance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static void print(String variant, Result result) {
+        System.out.printf("%-18s %6.0f transfers/s, money created or lost %s, failures %d%n",
+                variant + ":", result.perSecond(), result.drift().toPlainString(), result.failures());
+    }
+}
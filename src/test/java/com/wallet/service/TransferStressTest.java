@@ -0,0 +1,119 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.User;
+import com.wallet.exception.InsufficientBalanceException;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.VersionedBalance;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Many threads transferring back and forth between a small set of wallets, so A->B and B->A
+// constantly overlap. Money must be conserved and ordered locking must keep every transfer
+// within its retry budget.
+@Tag("stress")
+class TransferStressTest extends IntegrationTest {
+
+    private static final int WALLETS = 10;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private WalletJdbcRepository walletJdbcRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void opposingTransfersConserveTheTotalBalance() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            users.add(newFundedUser(OPENING_BALANCE));
+        }
+        List<String> userIds = users.stream().map(User::getId).toList();
+        BigDecimal totalBefore = total(userIds);
+
+        double retriesBefore = meterRegistry.counter("wallet.transfer.retries").count();
+        AtomicInteger rejected = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        long[][] latencies = new long[THREADS][TRANSFERS_PER_THREAD];
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long[] threadLatencies = latencies[t];
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < TRANSFERS_PER_THREAD; n++) {
+                    // Pairs from a small set, in both directions
+                    int from = random.nextInt(WALLETS);
+                    int to = (from + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+
+                    long startedAt = System.nanoTime();
+                    try {
+                        walletService.transfer(users.get(from), users.get(to).getWalletNumber(),
+                                amount, "stress_" + UUID.randomUUID());
+                    } catch (InsufficientBalanceException e) {
+                        rejected.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                    threadLatencies[n] = System.nanoTime() - startedAt;
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        long[] sorted = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        int transfers = sorted.length;
+        System.out.printf("Transfers: %d in %d ms, %.0f/s; rejected %d, retries %.0f, p50 %.1f ms, p99 %.1f ms%n",
+                transfers, TimeUnit.NANOSECONDS.toMillis(elapsed), transfers / (elapsed / 1e9),
+                rejected.get(), meterRegistry.counter("wallet.transfer.retries").count() - retriesBefore,
+                sorted[transfers / 2] / 1e6, sorted[(int) (transfers * 0.99)] / 1e6);
+
+        assertThat(failures).isEmpty();
+        assertThat(total(userIds)).isEqualByComparingTo(totalBefore);
+        assertThat(walletJdbcRepository.findVersionedBalances(userIds).values())
+                .allSatisfy(balance -> assertThat(balance.balance()).isNotNegative());
+    }
+
+    private BigDecimal total(List<String> userIds) {
+        Map<String, VersionedBalance> balances = walletJdbcRepository.findVersionedBalances(userIds);
+        assertThat(balances).hasSize(userIds.size());
+        return balances.values().stream()
+                .map(VersionedBalance::balance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,135 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import com.wallet.entity.User;
+import com.wallet.exception.InsufficientBalanceException;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository.VersionedBalance;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The same contended transfer load through the guarded-update path and through the striped
+// ledger, each in its own context. Wallets hash to different stripes, so most transfers
+// credit a row another stripe also writes; any deadlock between stripes surfaces as a failure.
+@Tag("stress")
+class WalletLedgerBenchmarkTest extends IntegrationTest {
+
+    private static final int WALLETS = 20;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS_PER_THREAD = 200;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+
+    private static final Map<String, Double> THROUGHPUT = new LinkedHashMap<>();
+
+    @Autowired
+    private WalletJdbcRepository walletJdbcRepository;
+
+    @AfterAll
+    static void report() {
+        THROUGHPUT.forEach((path, perSecond) ->
+                System.out.printf("Contended transfers via %-15s %.0f/s%n", path + ":", perSecond));
+    }
+
+    @Nested
+    class GuardedUpdates {
+
+        @Autowired
+        private WalletService walletService;
+
+        @Test
+        void conservesMoney() throws Exception {
+            THROUGHPUT.put("guarded updates", run(walletService));
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "app.wallet.ledger.enabled=true")
+    class Ledger {
+
+        @Autowired
+        private WalletService walletService;
+
+        @Test
+        void conservesMoney() throws Exception {
+            THROUGHPUT.put("ledger", run(walletService));
+        }
+    }
+
+    // Transfers per second; fails on any error other than an insufficient balance
+    private double run(WalletService service) throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            User user = newUser();
+            String reference = "fund_" + UUID.randomUUID();
+            service.deposit(user, OPENING_BALANCE, reference, reference);
+            users.add(user);
+        }
+        List<String> userIds = users.stream().map(User::getId).toList();
+        BigDecimal totalBefore = total(userIds);
+
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < TRANSFERS_PER_THREAD; n++) {
+                    int from = random.nextInt(WALLETS);
+                    int to = (from + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+                    try {
+                        service.transfer(users.get(from), users.get(to).getWalletNumber(),
+                                BigDecimal.valueOf(random.nextInt(1, 5000), 2), "bench_" + UUID.randomUUID());
+                    } catch (InsufficientBalanceException ignored) {
+                        // Rejected transfers change nothing
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        assertThat(failures).isEmpty();
+        assertThat(total(userIds)).isEqualByComparingTo(totalBefore);
+        return THREADS * TRANSFERS_PER_THREAD / (elapsed / 1e9);
+    }
+
+    private BigDecimal total(List<String> userIds) {
+        Map<String, VersionedBalance> balances = walletJdbcRepository.findVersionedBalances(userIds);
+        assertThat(balances).hasSize(userIds.size());
+        return balances.values().stream()
+                .map(VersionedBalance::balance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
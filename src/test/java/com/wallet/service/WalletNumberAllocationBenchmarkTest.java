@@ -0,0 +1,109 @@
+package com.wallet.service;
+
+import com.wallet.IntegrationTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Wallet numbers per second from many threads with a million users already signed up: the
+// random draw plus existence check that signup used to do, against the block allocator.
+// Then whole signups per second through the allocator. A million rather than ten million
+// existing users keeps the seeding inside a few seconds; the old draw's cost is one index
+// probe per attempt at either size, since collisions stay rare below 10^13.
+@Tag("stress")
+class WalletNumberAllocationBenchmarkTest extends IntegrationTest {
+
+    private static final int EXISTING_USERS = 1_000_000;
+    private static final int THREADS = 16;
+    private static final int NUMBERS_PER_THREAD = 2_000;
+    private static final int SIGNUPS_PER_THREAD = 50;
+
+    @Autowired
+    private WalletNumberAllocator walletNumberAllocator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void allocatorOutrunsRandomDrawAndStaysUnique() throws Exception {
+        String seed = "seed-" + System.nanoTime();
+        jdbcTemplate.update(
+                "INSERT INTO users (id, google_id, email, name, wallet_number, is_active, created_at, updated_at) " +
+                        "SELECT ? || '-' || g, ? || '-' || g, ? || '-' || g || '@wallet.test', 'Seeded', " +
+                        "lpad(((g::bigint * 7919 + 13) % 10000000000000)::text, 13, '0'), true, now(), now() " +
+                        "FROM generate_series(1, ?) g ON CONFLICT DO NOTHING",
+                seed, seed, seed, EXISTING_USERS);
+
+        SecureRandom random = new SecureRandom();
+        Set<String> drawn = ConcurrentHashMap.newKeySet();
+        double randomDraw = run(NUMBERS_PER_THREAD, () -> drawn.add(randomDraw(random)));
+
+        Set<String> allocated = ConcurrentHashMap.newKeySet();
+        double allocator = run(NUMBERS_PER_THREAD, () -> allocated.add(walletNumberAllocator.next()));
+
+        double signups = run(SIGNUPS_PER_THREAD, () -> newUser() != null);
+
+        System.out.printf("Wallet numbers with %d users, random draw: %.0f/s%n", EXISTING_USERS, randomDraw);
+        System.out.printf("Wallet numbers with %d users, allocator:   %.0f/s%n", EXISTING_USERS, allocator);
+        System.out.printf("Signups with %d users:                     %.0f/s%n", EXISTING_USERS, signups);
+
+        assertThat(allocated).hasSize(THREADS * NUMBERS_PER_THREAD)
+                .allSatisfy(number -> assertThat(walletNumberAllocator.isValid(number)).isTrue());
+        assertThat(allocator).isGreaterThan(randomDraw);
+    }
+
+    // What UserService.generateWalletNumber did: 13 random digits, redrawn while taken
+    private String randomDraw(SecureRandom random) {
+        while (true) {
+            StringBuilder number = new StringBuilder(13);
+            for (int i = 0; i < 13; i++) {
+                number.append(random.nextInt(10));
+            }
+            Boolean taken = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM users WHERE wallet_number = ?)", Boolean.class, number.toString());
+            if (!Boolean.TRUE.equals(taken)) {
+                return number.toString();
+            }
+        }
+    }
+
+    // Calls per second across all threads; each call must return true
+    private double run(int callsPerThread, Supplier<Boolean> call) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int n = 0; n < callsPerThread; n++) {
+                    assertThat(call.get()).isTrue();
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        pool.shutdown();
+        return (double) THREADS * callsPerThread / (elapsed / 1e9);
+    }
+}
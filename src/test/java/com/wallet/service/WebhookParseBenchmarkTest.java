@@ -0,0 +1,127 @@
+package com.wallet.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wallet.IntegrationTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Bytes allocated and time spent per webhook on a large charge.success payload, from the raw
+// body to event, reference and amount. "tree" is what the endpoint did before: a String of
+// the body, a new Mac per call and a full JsonNode tree. "streaming" is what runs now: the
+// pre-keyed Mac over the raw bytes and the processor's streaming parse. Single-threaded, so
+// the calling thread's allocation counter covers all of it.
+@Tag("stress")
+class WebhookParseBenchmarkTest extends IntegrationTest {
+
+    private static final int LOG_ENTRIES = 2_000;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @Autowired
+    private PaystackService paystackService;
+
+    @Autowired
+    private PaystackWebhookProcessor processor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.paystack.webhook-secret}")
+    private String webhookSecret;
+
+    private interface Handler {
+        String reference(byte[] body, String signature) throws Exception;
+    }
+
+    private record Result(double bytesPerWebhook, double microsPerWebhook) {
+    }
+
+    @Test
+    void streamingParseAllocatesLessThanATree() throws Exception {
+        byte[] body = largePayload().getBytes(StandardCharsets.UTF_8);
+        String signature = HexFormat.of().formatHex(mac().doFinal(body));
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        results.put("tree", run(body, signature, this::tree));
+        results.put("streaming", run(body, signature, this::streaming));
+        results.forEach((variant, result) ->
+                System.out.printf("Webhook of %d KB via %-10s %8.0f bytes allocated, %6.1f us%n",
+                        body.length / 1024, variant + ":", result.bytesPerWebhook(), result.microsPerWebhook()));
+
+        assertThat(results.get("streaming").bytesPerWebhook()).isLessThan(results.get("tree").bytesPerWebhook());
+    }
+
+    private String tree(byte[] body, String signature) throws Exception {
+        String payload = new String(body, StandardCharsets.UTF_8);
+        String expected = Base64.getEncoder().encodeToString(mac().doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        // The old comparison, kept for its cost; it never matched Paystack's hex signature
+        expected.equals(signature);
+        JsonNode data = objectMapper.readTree(payload).get("data");
+        data.get("amount").asLong();
+        return data.get("reference").asText();
+    }
+
+    private String streaming(byte[] body, String signature) throws Exception {
+        if (!paystackService.verifyWebhookSignature(body, signature)) {
+            throw new IllegalStateException("Signature rejected");
+        }
+        Object charge = ReflectionTestUtils.invokeMethod(AopTestUtils.getUltimateTargetObject(processor),
+                "parse", new String(body, StandardCharsets.UTF_8));
+        return (String) ReflectionTestUtils.invokeMethod(charge, "reference");
+    }
+
+    private Result run(byte[] body, String signature, Handler handler) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            assertThat(handler.reference(body, signature)).isEqualTo("ref_bench");
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            handler.reference(body, signature);
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        return new Result((double) allocated / ITERATIONS, elapsed / 1e3 / ITERATIONS);
+    }
+
+    private Mac mac() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA512");
+        mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+        return mac;
+    }
+
+    // Shaped like Paystack's charge.success, with the log history padding it out
+    private static String largePayload() {
+        StringBuilder history = new StringBuilder();
+        for (int i = 0; i < LOG_ENTRIES; i++) {
+            if (i > 0) {
+                history.append(',');
+            }
+            history.append("{\"type\":\"action\",\"message\":\"Attempted to pay with card\",\"time\":").append(i).append('}');
+        }
+        return "{\"event\":\"charge.success\",\"data\":{\"id\":302961,\"domain\":\"live\",\"status\":\"success\"," +
+                "\"log\":{\"time_spent\":9,\"attempts\":1,\"history\":[" + history + "]}," +
+                "\"reference\":\"ref_bench\",\"amount\":150000,\"currency\":\"NGN\"," +
+                "\"customer\":{\"id\":68324,\"email\":\"bench@wallet.test\"}," +
+                "\"authorization\":{\"authorization_code\":\"AUTH_x\",\"bin\":\"412345\",\"last4\":\"6789\"}}}";
+    }
+}